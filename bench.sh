@@ -0,0 +1,19 @@
+#!/bin/bash
+
+echo "javac interpreter and benchmarks"
+javac -d bin/ interpreter/*.java bench/*.java
+
+echo "java ParserBench"
+java -cp bin/ com.interpreter.ParserBench
+
+echo "java CompactAstBench"
+java -cp bin/ com.interpreter.CompactAstBench
+
+echo "java SpawnBench"
+java -cp bin/ com.interpreter.SpawnBench
+
+echo "java ParallelArrayBench"
+java -cp bin/ com.interpreter.ParallelArrayBench
+
+echo "java SchedulerBench"
+java -cp bin/ com.interpreter.SchedulerBench
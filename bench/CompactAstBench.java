@@ -0,0 +1,77 @@
+package com.interpreter;
+
+import java.util.List;
+
+// Measures the heap retained by a loaded program, parsed and resolved as a
+// tree of Expr and Stmt nodes, and with --compact: before any function is
+// called, when only the top level is decoded, and after every function body
+// has been decoded, as in a program that called all of its functions. Run
+// it with bench.sh.
+public class CompactAstBench {
+	public static void main(String[] args) {
+		String source = script(10000);
+		int lines = source.split("\n").length;
+
+		long base = usedHeap();
+		QedRuntime tree = runtime(false);
+		List<Stmt> treeStatements = tree.load(source);
+		long treeBytes = usedHeap() - base;
+		if (treeStatements == null) throw new AssertionError();
+		tree = null;
+		treeStatements = null;
+
+		base = usedHeap();
+		QedRuntime compact = runtime(true);
+		List<Stmt> statements = compact.load(source);
+		long encodedBytes = usedHeap() - base;
+
+		for (Stmt statement : statements) {
+			if (statement instanceof Stmt.Function) {
+				Stmt.Function function = (Stmt.Function)statement;
+				function.lazy.materialize(function);
+			}
+		}
+		long decodedBytes = usedHeap() - base;
+
+		System.out.println(lines + " lines:");
+		System.out.printf("  tree:              %,d bytes%n", treeBytes);
+		report("compact, encoded:  ", encodedBytes, treeBytes);
+		report("compact, decoded:  ", decodedBytes, treeBytes);
+
+		// keep the programs alive until they're measured
+		if (compact.interpreter.locals.isEmpty() || statements.isEmpty()) throw new AssertionError();
+	}
+
+	private static QedRuntime runtime(boolean compact) {
+		QedRuntime runtime = new QedRuntime(System.out, System.err);
+		runtime.compact = compact;
+		return runtime;
+	}
+
+	private static void report(String name, long bytes, long treeBytes) {
+		System.out.printf("  %s %,d bytes, %.0f%% saved%n", name, bytes,
+			100.0 * (treeBytes - bytes) / treeBytes);
+	}
+
+	private static long usedHeap() {
+		Runtime jvm = Runtime.getRuntime();
+		for (int i = 0; i < 4; ++i) {
+			System.gc();
+		}
+		return jvm.totalMemory() - jvm.freeMemory();
+	}
+
+	private static String script(int functions) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < functions; ++i) {
+			builder.append("fun f").append(i).append("(a, b) {\n")
+				.append("  var c = a * b + (a - b) / 2;\n")
+				.append("  var d = nil;\n")
+				.append("  while (c > 0) { c = c - 1; print c, [a, b, \"x\", nil]; }\n")
+				.append("  if (c >= 10 and a != b or !c) c = -c;\n")
+				.append("  return c > 0 ? obj.field[c] : f(a, b + 1);\n")
+				.append("}\n");
+		}
+		return builder.toString();
+	}
+}
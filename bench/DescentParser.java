@@ -0,0 +1,305 @@
+package com.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.interpreter.TokenType.*;
+
+// The recursive descent expression parser the Pratt parser replaced, with
+// one method per precedence level. ParserBench compares the two with it on
+// scripts of expression statements, the only statements it parses, so it
+// doesn't depend on the internals of Parser.
+class DescentParser {
+	private static class ParseError extends RuntimeException {}
+
+	private final List<Token> tokens;
+	private final QedRuntime runtime;
+	private int current = 0;
+
+	DescentParser(List<Token> tokens, QedRuntime runtime) {
+		this.tokens = tokens;
+		this.runtime = runtime;
+	}
+
+	// Returns the expression statements of the script, or null
+	// on the first syntax error
+	List<Stmt> parse() {
+		List<Stmt> statements = new ArrayList<>();
+		try {
+			while (!isAtEnd()) {
+				Expr expr = expression();
+				consume(SEMICOLON, "Expected ';' after expression");
+				statements.add(new Stmt.Expression(expr));
+			}
+		} catch (ParseError error) {
+			return null;
+		}
+		return statements;
+	}
+
+	private Expr expression() {
+		return comma();
+	}
+
+	private Expr assignmentExpression() {
+		return assignment();
+	}
+
+	private Expr comma() {
+		Expr expr = assignment();
+
+		while (match(COMMA)) {
+			Token operator = previous();
+			Expr right = assignment();
+			expr = new Expr.Binary(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr assignment() {
+		Expr expr = ternary();
+
+		if (match(EQUAL)) {
+			Token equals = previous();
+			Expr rvalue = ternary();
+			return assign(expr, equals, rvalue);
+		}
+
+		return expr;
+	}
+
+	private Expr ternary() {
+		Expr expr = or();
+
+		if (match(QUESTION_MARK)) {
+			Expr onTrue = ternary();
+			consume(COLON, "Expected ':' after then branch of ternary operator");
+			Expr onFalse = ternary();
+			expr = new Expr.Ternary(expr, onTrue, onFalse);
+		}
+
+		return expr;
+	}
+
+	private Expr or() {
+		Expr expr = and();
+
+		while (match(OR)) {
+			Token operator = previous();
+			Expr right = and();
+			expr = new Expr.Logical(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr and() {
+		Expr expr = equality();
+
+		while (match(AND)) {
+			Token operator = previous();
+			Expr right = equality();
+			expr = new Expr.Logical(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr equality() {
+		Expr expr = comparison();
+
+		while (match(EQUAL_EQUAL, BANG_EQUAL)) {
+			Token operator = previous();
+			Expr right = comparison();
+			expr = new Expr.Binary(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr comparison() {
+		Expr expr = addition();
+
+		while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
+			Token operator = previous();
+			Expr right = addition();
+			expr = new Expr.Binary(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr addition() {
+		Expr expr = multiplication();
+
+		while (match(PLUS, MINUS)) {
+			Token operator = previous();
+			Expr right = multiplication();
+			expr = new Expr.Binary(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr multiplication() {
+		Expr expr = unary();
+
+		while (match(STAR, SLASH)) {
+			Token operator = previous();
+			Expr right = multiplication();
+			expr = new Expr.Binary(expr, operator, right);
+		}
+
+		return expr;
+	}
+
+	private Expr unary() {
+		if (match(BANG, MINUS)) {
+			Token operator = previous();
+			Expr right = unary();
+			return new Expr.Unary(operator, right);
+		}
+
+		if (match(AWAIT)) {
+			Token keyword = previous();
+			return new Expr.Await(keyword, unary());
+		}
+
+		return call();
+	}
+
+	private Expr call() {
+		Expr expr = primary();
+
+		while (true) {
+			if (match(LEFT_PAREN)) {
+				expr = finishCall(expr);
+			} else if (match(DOT)) {
+				Token name = consume(IDENTIFIER, "Expected property name after '.'");
+				expr = new Expr.Get(expr, name);
+			} else if (match(LEFT_BRACKET)) {
+				Token bracket = previous();
+				Expr index = expression();
+				consume(RIGHT_BRACKET, "Expected ']' at end of array subscription");
+				expr = new Expr.ArrayGet(expr, bracket, index);
+			} else {
+				break;
+			}
+		}
+
+		return expr;
+	}
+
+	private Expr assign(Expr expr, Token equals, Expr rvalue) {
+		if (expr instanceof Expr.Variable) {
+			return new Expr.Assign(((Expr.Variable)expr).name, rvalue);
+		} else if (expr instanceof Expr.Get) {
+			Expr.Get get = (Expr.Get)expr;
+			return new Expr.Set(get.object, get.name, rvalue);
+		} else if (expr instanceof Expr.ArrayGet) {
+			Expr.ArrayGet get = (Expr.ArrayGet)expr;
+			return new Expr.ArraySet(get.array, get.bracket, get.index, rvalue);
+		}
+
+		error(equals, "Can't assign to non variable");
+		return expr;
+	}
+
+	private Expr finishCall(Expr expr) {
+		Token paren = previous();
+		List<Expr> args = new ArrayList<>();
+		if (!match(RIGHT_PAREN)) {
+			do {
+				args.add(assignmentExpression());
+			} while (match(COMMA));
+			consume(RIGHT_PAREN, "Expected ')' at the end of function arguments");
+		}
+
+		return new Expr.Call(expr, paren, args);
+	}
+
+	private Expr primary() {
+		if (match(TRUE)) return new Expr.Literal(true);
+		if (match(FALSE)) return new Expr.Literal(false);
+		if (match(NIL)) return new Expr.Literal(null);
+
+		if (match(NUMBER, STRING)) return new Expr.Literal(previous().literal);
+
+		if (match(IDENTIFIER)) return new Expr.Variable(previous());
+
+		if (match(LEFT_BRACKET)) return array();
+
+		if (match(THIS)) return new Expr.This(previous());
+
+		if (match(SUPER)) {
+			Token keyword = previous();
+			consume(DOT, "Expected '.' after 'super'");
+			return new Expr.Super(keyword,
+				consume(IDENTIFIER, "Expected superclass method name"));
+		}
+
+		if (match(LEFT_PAREN)) {
+			Expr expr = expression();
+			consume(RIGHT_PAREN, "Expected ')' after expression");
+			return expr;
+		}
+
+		throw error(peek(), "Expected an expression");
+	}
+
+	private Expr array() {
+		List<Expr> values = new ArrayList<>();
+		if (match(RIGHT_BRACKET)) return new Expr.Array(values);
+
+		do {
+			values.add(assignmentExpression());
+		} while (match(COMMA));
+
+		consume(RIGHT_BRACKET, "Expected ']' after array values");
+		return new Expr.Array(values);
+	}
+
+	private Token consume(TokenType type, String message) {
+		if (check(type)) return advance();
+
+		throw error(peek(), message);
+	}
+
+	private ParseError error(Token token, String message) {
+		runtime.error(token, message);
+		return new ParseError();
+	}
+
+	private boolean match(TokenType... types) {
+		for (TokenType type : types) {
+			if (check(type)) {
+				advance();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean check(TokenType type) {
+		if (isAtEnd()) return false;
+		return peek().type == type;
+	}
+
+	private Token advance() {
+		if (!isAtEnd()) ++current;
+		return previous();
+	}
+
+	private boolean isAtEnd() {
+		return peek().type == EOF;
+	}
+
+	private Token peek() {
+		return tokens.get(current);
+	}
+
+	private Token previous() {
+		return tokens.get(current - 1);
+	}
+}
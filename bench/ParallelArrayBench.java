@@ -0,0 +1,71 @@
+package com.interpreter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Runs pmap, pfilter and preduce over a large array on ForkJoinPools of 1,
+// 2, 4, ... workers, up to the number of cores (or the first argument), and
+// reports the speedup over a single worker. Run it with bench.sh.
+public class ParallelArrayBench {
+	private static final int SIZE = 20000;
+	private static final int ROUNDS = 5;
+
+	private static final String SCRIPT =
+		"fun work(n) {\n" +
+		"  var sum = 0;\n" +
+		"  for (var i = 0; i < 100; i = i + 1) sum = sum + i * n;\n" +
+		"  return sum;\n" +
+		"}\n" +
+		"fun large(sum) { return sum > 100000; }\n" +
+		"fun add(a, b) { return a + b; }\n" +
+		"var sums = pmap(data, work);\n" +
+		"var largest = pfilter(sums, large);\n" +
+		"var total = preduce(sums, add, 0);\n";
+
+	public static void main(String[] args) throws Exception {
+		CompiledProgram program = CompiledProgram.compile(SCRIPT);
+		int cores = args.length > 0
+			? Integer.parseInt(args[0])
+			: Runtime.getRuntime().availableProcessors();
+
+		List<Object> data = new ArrayList<>();
+		for (int i = 1; i <= SIZE; ++i) {
+			data.add(i);
+		}
+		Map<String, Object> arguments = new HashMap<>();
+		arguments.put("data", data);
+
+		// warm up, and check the result against the sequential one
+		Object expected = run(program, arguments, 1).get("total");
+		if (!expected.equals(run(program, arguments, cores).get("total"))) {
+			throw new AssertionError("parallel result differs");
+		}
+
+		double single = 0;
+		for (int workers = 1; workers <= cores; workers *= 2) {
+			double best = Double.MAX_VALUE;
+			for (int i = 0; i < ROUNDS; ++i) {
+				long start = System.nanoTime();
+				run(program, arguments, workers);
+				best = Math.min(best, (System.nanoTime() - start) / 1e6);
+			}
+			if (workers == 1) single = best;
+			System.out.printf("%2d workers: %7.1f ms, speedup %.2fx%n", workers, best, single / best);
+		}
+	}
+
+	// Executes the program on a pool of [workers], which the
+	// builtins then fork into instead of the common pool
+	private static Execution run(CompiledProgram program, Map<String, Object> arguments,
+			int workers) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool(workers);
+		try {
+			return pool.submit(() -> program.execute(arguments)).get();
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
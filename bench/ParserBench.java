@@ -0,0 +1,89 @@
+package com.interpreter;
+
+import java.util.List;
+
+// Compares the parse throughput of the precedence table (Pratt) expression
+// parser with the recursive descent chain in DescentParser, on a data heavy
+// script made of array literals and on the expressions of ordinary code.
+// The scripts are top level expression statements, which AstPrinter prints
+// in full, so that the check that both parsers build the same trees covers
+// every expression. Run it with bench.sh.
+public class ParserBench {
+	private static final int WARMUP_ROUNDS = 20;
+	private static final int ROUNDS = 50;
+	private static final QedRuntime runtime = new QedRuntime(System.out, System.err);
+
+	public static void main(String[] args) {
+		run("array literals", dataScript(2000, 50));
+		run("code", codeScript(2000));
+	}
+
+	private static void run(String name, String source) {
+		List<Token> tokens = new Scanner(source, runtime).scanTokens();
+
+		// both parsers must build the same trees
+		List<Stmt> prattTree = parse(tokens, true);
+		List<Stmt> descentTree = parse(tokens, false);
+		if (runtime.hadError) throw new AssertionError("syntax errors in " + name);
+		AstPrinter printer = new AstPrinter();
+		if (!printer.println(prattTree).equals(printer.println(descentTree))) {
+			throw new AssertionError("parsers disagree on " + name);
+		}
+
+		for (int i = 0; i < WARMUP_ROUNDS; ++i) {
+			time(tokens, true);
+			time(tokens, false);
+		}
+
+		long pratt = 0;
+		long descent = 0;
+		for (int i = 0; i < ROUNDS; ++i) {
+			pratt += time(tokens, true);
+			descent += time(tokens, false);
+		}
+
+		System.out.println(name + " (" + tokens.size() + " tokens):");
+		report("  recursive descent", tokens.size(), descent);
+		report("  pratt", tokens.size(), pratt);
+		System.out.printf("  speedup %.2fx%n", (double)descent / pratt);
+	}
+
+	private static List<Stmt> parse(List<Token> tokens, boolean pratt) {
+		return pratt ? new Parser(tokens, runtime).parse() : new DescentParser(tokens, runtime).parse();
+	}
+
+	private static long time(List<Token> tokens, boolean pratt) {
+		long start = System.nanoTime();
+		parse(tokens, pratt);
+		return System.nanoTime() - start;
+	}
+
+	private static void report(String name, int tokens, long nanos) {
+		double tokensPerMs = (double)tokens * ROUNDS / (nanos / 1e6);
+		System.out.printf("%s: %.0f tokens/ms%n", name, tokensPerMs);
+	}
+
+	private static String dataScript(int arrays, int length) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < arrays; ++i) {
+			builder.append("data").append(i).append(" = [");
+			for (int j = 0; j < length; ++j) {
+				if (j > 0) builder.append(", ");
+				builder.append(i * length + j);
+			}
+			builder.append("];\n");
+		}
+		return builder.toString();
+	}
+
+	private static String codeScript(int blocks) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < blocks; ++i) {
+			builder.append("c").append(i).append(" = a * b / c + (a - b) / 2 - d - e;\n")
+				.append("c >= 10 and a != b or !c ? -c : c;\n")
+				.append("c > 0 ? obj.field[c] : f(a, b + 1);\n")
+				.append("obj.field[c] = g(a, [b, c]), this.count = super.count + 1;\n");
+		}
+		return builder.toString();
+	}
+}
@@ -0,0 +1,213 @@
+package com.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Runs the end to end workloads in perf/workloads and compares them with a
+// baseline, failing if one allocates more than the threshold. Run it with
+// perf.sh:
+//
+//   ./perf.sh                        compare with perf/baseline.txt
+//   ./perf.sh --update               measure and write a new baseline
+//   ./perf.sh --threshold 5          fail on allocation regressions over 5%
+//                                    (10% by default)
+//   ./perf.sh --time-threshold 50    also fail on time regressions over 50%
+//
+// Every workload <name>.qed has its expected output in <name>.out, which
+// each run has to print. A workload is run WARMUP times and then RUNS times
+// in a fresh runtime, and the fastest time and the median bytes allocated
+// by the thread running it are compared. The workloads are single threaded,
+// so that's all they allocate.
+//
+// Allocation is the same from run to run, but time isn't: on a busy or
+// virtual machine the fastest of the runs still moves by tens of percent.
+// So time is only reported unless --time-threshold is given, and then a
+// workload that seems slower is measured again, and only fails if it's
+// still slower, so a single noisy measurement doesn't fail the comparison.
+//
+// The times of the baseline are only meaningful on the machine they were
+// measured on, so update it before comparing times on a new one.
+public class PerfRunner {
+	private static final Path WORKLOADS = Paths.get("perf", "workloads");
+	private static final Path BASELINE = Paths.get("perf", "baseline.txt");
+	private static final int WARMUP = 5;
+	private static final int RUNS = 9;
+
+	private static class Result {
+		final double millis;
+		final long bytes;
+
+		Result(double millis, long bytes) {
+			this.millis = millis;
+			this.bytes = bytes;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean update = false;
+		double threshold = 10;
+		// time isn't compared by default
+		double timeThreshold = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < args.length; ++i) {
+			if (args[i].equals("--update")) {
+				update = true;
+			} else if (args[i].equals("--threshold") && i + 1 < args.length) {
+				threshold = Double.parseDouble(args[++i]);
+			} else if (args[i].equals("--time-threshold") && i + 1 < args.length) {
+				timeThreshold = Double.parseDouble(args[++i]);
+			} else {
+				System.err.println("Usage: perf.sh [--update] [--threshold <percent>] [--time-threshold <percent>]");
+				System.exit(64);
+			}
+		}
+
+		List<Path> scripts;
+		try (Stream<Path> files = Files.list(WORKLOADS)) {
+			scripts = files.filter(path -> path.toString().endsWith(".qed"))
+				.sorted().collect(Collectors.toList());
+		}
+
+		Map<String, Result> results = new HashMap<>();
+		boolean failed = false;
+		for (Path script : scripts) {
+			String name = script.getFileName().toString().replace(".qed", "");
+			Result result = measure(script);
+			if (result == null) {
+				failed = true;
+			} else {
+				results.put(name, result);
+			}
+		}
+
+		if (update) {
+			if (failed) {
+				System.err.println("Not writing a baseline while workloads fail");
+				System.exit(1);
+			}
+			writeBaseline(results);
+			System.out.println("Wrote " + BASELINE);
+			return;
+		}
+
+		Map<String, Result> baseline = readBaseline();
+		System.out.printf("%-12s %10s %10s %8s %10s %10s %8s%n",
+			"workload", "ms", "base ms", "change", "MB", "base MB", "change");
+		for (Path script : scripts) {
+			String name = script.getFileName().toString().replace(".qed", "");
+			Result result = results.get(name);
+			if (result == null) continue;
+
+			Result base = baseline.get(name);
+			if (base == null) {
+				System.out.printf("%-12s %10.1f %10s %8s %10.1f %10s %8s  no baseline%n",
+					name, result.millis, "-", "-", megabytes(result.bytes), "-", "-");
+				continue;
+			}
+
+			double time = change(result.millis, base.millis);
+			if (time > timeThreshold) {
+				// it has to be slower twice in a row
+				Result again = measure(script);
+				if (again != null && again.millis < result.millis) {
+					result = again;
+					time = change(result.millis, base.millis);
+				}
+			}
+			double memory = change(result.bytes, base.bytes);
+			boolean regressed = time > timeThreshold || memory > threshold;
+			failed |= regressed;
+			System.out.printf("%-12s %10.1f %10.1f %+7.1f%% %10.1f %10.1f %+7.1f%%%s%n",
+				name, result.millis, base.millis, time, megabytes(result.bytes),
+				megabytes(base.bytes), memory, regressed ? "  REGRESSION" : "");
+		}
+
+		if (failed) System.exit(1);
+	}
+
+	// The fastest time and the median allocation of the runs of [script], or
+	// null if it didn't print what its .out file has. Noise only ever adds
+	// time, so the fastest run is the most repeatable.
+	private static Result measure(Path script) throws IOException {
+		Path expected = Paths.get(script.toString().replace(".qed", ".out"));
+		String source = new String(Files.readAllBytes(script), Charset.defaultCharset());
+		String output = new String(Files.readAllBytes(expected), Charset.defaultCharset());
+		com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+
+		double[] times = new double[RUNS];
+		long[] allocations = new long[RUNS];
+		for (int i = 0; i < WARMUP + RUNS; ++i) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			ByteArrayOutputStream err = new ByteArrayOutputStream();
+			QedRuntime runtime = new QedRuntime(new PrintStream(out, true), new PrintStream(err, true));
+
+			// so that runs don't pay for the garbage of the previous ones
+			System.gc();
+			long bytes = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			runtime.run(source);
+			double millis = (System.nanoTime() - start) / 1e6;
+			bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+
+			if (!out.toString().equals(output) || err.size() > 0) {
+				System.err.println(script + " printed something else than " + expected + ":");
+				System.err.print(out.toString() + err.toString());
+				return null;
+			}
+
+			if (i >= WARMUP) {
+				times[i - WARMUP] = millis;
+				allocations[i - WARMUP] = bytes;
+			}
+		}
+
+		Arrays.sort(times);
+		Arrays.sort(allocations);
+		return new Result(times[0], allocations[RUNS / 2]);
+	}
+
+	// The change from [base] to [value], in percent
+	private static double change(double value, double base) {
+		return (value - base) / base * 100;
+	}
+
+	private static double megabytes(long bytes) {
+		return bytes / (1024.0 * 1024.0);
+	}
+
+	private static Map<String, Result> readBaseline() throws IOException {
+		Map<String, Result> baseline = new HashMap<>();
+		if (!Files.exists(BASELINE)) return baseline;
+
+		for (String line : Files.readAllLines(BASELINE)) {
+			if (line.startsWith("#") || line.isBlank()) continue;
+			String[] fields = line.trim().split("\\s+");
+			baseline.put(fields[0], new Result(Double.parseDouble(fields[1]), Long.parseLong(fields[2])));
+		}
+		return baseline;
+	}
+
+	private static void writeBaseline(Map<String, Result> results) throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add("# workload, fastest milliseconds, median bytes allocated; written by perf.sh --update");
+		results.keySet().stream().sorted().forEach(name -> {
+			Result result = results.get(name);
+			lines.add(String.format("%s %.1f %d", name, result.millis, result.bytes));
+		});
+		Files.write(BASELINE, lines);
+	}
+}
@@ -0,0 +1,81 @@
+package com.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Submits a few long running scripts and then many short ones to a
+// Scheduler with fewer workers than long scripts, and reports how long the
+// short ones take to complete, with preemption and without it (an endless
+// quantum). Run it with bench.sh.
+public class SchedulerBench {
+	private static final int WORKERS = 2;
+	private static final int LONG = 4;
+	private static final int SHORT = 200;
+	private static final int QUANTUM = 10000;
+
+	private static final String LONG_SCRIPT =
+		"var sum = 0;\n" +
+		"for (var i = 0; i < 3000000; i = i + 1) sum = sum + i;\n";
+
+	private static final String SHORT_SCRIPT =
+		"fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }\n" +
+		"var result = fib(12);\n";
+
+	public static void main(String[] args) throws Exception {
+		CompiledProgram longProgram = CompiledProgram.compile(LONG_SCRIPT);
+		CompiledProgram shortProgram = CompiledProgram.compile(SHORT_SCRIPT);
+
+		// warm up
+		run(longProgram, shortProgram, QUANTUM);
+
+		report("preemptive, quantum " + QUANTUM, run(longProgram, shortProgram, QUANTUM));
+		report("no preemption", run(longProgram, shortProgram, Integer.MAX_VALUE));
+	}
+
+	// Returns the latencies of the short scripts, in milliseconds
+	private static List<Double> run(CompiledProgram longProgram,
+			CompiledProgram shortProgram, int quantum) throws Exception {
+		Scheduler scheduler = new Scheduler(WORKERS, quantum);
+		Map<String, Object> arguments = Collections.emptyMap();
+
+		List<CompletableFuture<Execution>> longRuns = new ArrayList<>();
+		for (int i = 0; i < LONG; ++i) {
+			longRuns.add(scheduler.submit(longProgram, arguments));
+		}
+		// let the long scripts take the workers
+		Thread.sleep(20);
+
+		double[] latencies = new double[SHORT];
+		List<CompletableFuture<Execution>> shortRuns = new ArrayList<>();
+		for (int i = 0; i < SHORT; ++i) {
+			final int index = i;
+			final long start = System.nanoTime();
+			shortRuns.add(scheduler.submit(shortProgram, arguments).whenComplete(
+				(execution, error) -> latencies[index] = (System.nanoTime() - start) / 1e6));
+		}
+
+		for (CompletableFuture<Execution> run : shortRuns) {
+			if (!run.get().get("result").equals(144.0)) throw new AssertionError("wrong result");
+		}
+		for (CompletableFuture<Execution> run : longRuns) {
+			run.get();
+		}
+
+		List<Double> sorted = new ArrayList<>();
+		for (double latency : latencies) {
+			sorted.add(latency);
+		}
+		Collections.sort(sorted);
+		return sorted;
+	}
+
+	private static void report(String name, List<Double> latencies) {
+		System.out.printf("%s: short script latency p50 %.1f ms, p99 %.1f ms, max %.1f ms%n", name,
+			latencies.get(latencies.size() / 2),
+			latencies.get(latencies.size() * 99 / 100),
+			latencies.get(latencies.size() - 1));
+	}
+}
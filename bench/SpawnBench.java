@@ -0,0 +1,57 @@
+package com.interpreter;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Runs a fixed amount of CPU bound QED work split over 1, 2, 4, ... tasks,
+// up to the number of cores (or the first argument), and reports the
+// speedup over a single task. Run it with bench.sh.
+public class SpawnBench {
+	private static final int WORK = 4000000;
+	private static final int ROUNDS = 5;
+
+	private static final String SCRIPT =
+		"fun worker(n) {\n" +
+		"  fun run() {\n" +
+		"    var sum = 0;\n" +
+		"    for (var i = 0; i < n; i = i + 1) sum = sum + i;\n" +
+		"    return sum;\n" +
+		"  }\n" +
+		"  return run;\n" +
+		"}\n" +
+		"class Node { fun init(task, next) { this.task = task; this.next = next; } }\n" +
+		"var list = nil;\n" +
+		"for (var t = 0; t < tasks; t = t + 1) list = Node(spawn(worker(work / tasks)), list);\n" +
+		"while (list != nil) { join(list.task); list = list.next; }\n";
+
+	public static void main(String[] args) throws QedException {
+		CompiledProgram program = CompiledProgram.compile(SCRIPT);
+		int cores = args.length > 0
+			? Integer.parseInt(args[0])
+			: Runtime.getRuntime().availableProcessors();
+
+		// warm up
+		run(program, cores);
+		run(program, 1);
+
+		double single = 0;
+		for (int tasks = 1; tasks <= cores; tasks *= 2) {
+			double best = Double.MAX_VALUE;
+			for (int i = 0; i < ROUNDS; ++i) {
+				best = Math.min(best, run(program, tasks));
+			}
+			if (tasks == 1) single = best;
+			System.out.printf("%2d tasks: %7.1f ms, speedup %.2fx%n", tasks, best, single / best);
+		}
+	}
+
+	private static double run(CompiledProgram program, int tasks) throws QedException {
+		Map<String, Object> arguments = new HashMap<>();
+		arguments.put("tasks", tasks);
+		arguments.put("work", WORK);
+
+		long start = System.nanoTime();
+		program.execute(arguments);
+		return (System.nanoTime() - start) / 1e6;
+	}
+}
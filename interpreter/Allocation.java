@@ -0,0 +1,38 @@
+package com.interpreter;
+
+// The kinds of objects the interpreter allocates for a running script,
+// with an estimate of their size on a 64 bit JVM with compressed pointers,
+// for AllocationInterpreter
+enum Allocation {
+	// a scope: the Environment, its HashMap and, once a variable is
+	// defined, the table with a node per variable
+	ENVIRONMENT,
+	// the list of the arguments of a call
+	ARGUMENTS,
+	// an array literal
+	ARRAY,
+	// an Instance and the HashMap of its fields
+	INSTANCE,
+	// a method bound to an instance, with the environment holding 'this'
+	BOUND_METHOD,
+	// a Function capturing its environment
+	CLOSURE;
+
+	// The estimated bytes of an allocation of [size] variables or elements
+	long bytes(int size) {
+		switch (this) {
+			case ENVIRONMENT:
+				return 24 + 48 + (size > 0 ? 80 + 32 * size : 0);
+			case ARGUMENTS:
+			case ARRAY:
+				return 24 + (size > 0 ? 16 + 4 * Math.max(10, size) : 0);
+			case INSTANCE:
+				return 24 + 48;
+			case BOUND_METHOD:
+				return 24 + ENVIRONMENT.bytes(1);
+			case CLOSURE:
+				return 24;
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,118 @@
+package com.interpreter;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// The interpreter of --allocations: counts the objects the interpreter
+// allocates for the script by kind, with their estimated bytes (see
+// Allocation), and attributes them to the QED function and the line that
+// was running, for a table of the top allocation sites at exit.
+//
+// Like InstrumentedInterpreter it's switched in before the script is loaded
+// (see QedRuntime.trackAllocations), so that the allocated() hook stays empty
+// and costs nothing when allocations aren't tracked.
+class AllocationInterpreter extends Interpreter {
+	// What allocated: the kind, the function (a frame of the ShadowStack,
+	// null at the top level) and the statement running
+	private static class Site {
+		final Allocation kind;
+		final Object function;
+		final Stmt statement;
+
+		Site(Allocation kind, Object function, Stmt statement) {
+			this.kind = kind;
+			this.function = function;
+			this.statement = statement;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (!(object instanceof Site)) return false;
+			Site site = (Site)object;
+			return kind == site.kind && function == site.function && statement == site.statement;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(kind, System.identityHashCode(function), System.identityHashCode(statement));
+		}
+	}
+
+	private static class Counter {
+		final LongAdder count = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+	}
+
+	// shared by the interpreters of all threads of the runtime
+	private final Map<Site, Counter> sites;
+	private Stmt statement = null;
+
+	AllocationInterpreter(QedRuntime runtime, Map<Expr, Integer> locals) {
+		super(runtime, locals);
+		this.sites = new ConcurrentHashMap<>();
+		// the calls are tracked for the attribution
+		this.stack = new ShadowStack();
+	}
+
+	private AllocationInterpreter(AllocationInterpreter parent) {
+		super(parent);
+		this.sites = parent.sites;
+		if (stack == null) stack = new ShadowStack();
+	}
+
+	@Override
+	Interpreter child() {
+		return new AllocationInterpreter(this);
+	}
+
+	@Override
+	void execute(Stmt stmt) {
+		Stmt outer = statement;
+		statement = stmt;
+		try {
+			super.execute(stmt);
+		} finally {
+			statement = outer;
+		}
+	}
+
+	@Override
+	void allocated(Allocation kind, int size) {
+		Object function = stack.top();
+		if (function instanceof String) function = null;
+
+		Counter counter = sites.computeIfAbsent(new Site(kind, function, statement), site -> new Counter());
+		counter.count.increment();
+		counter.bytes.add(kind.bytes(size));
+	}
+
+	// Prints the [top] sites that allocated the most bytes
+	void report(String source, int top, PrintStream out) {
+		String[] text = source.split("\n", -1);
+		List<Map.Entry<Site, Counter>> largest = new ArrayList<>(sites.entrySet());
+		largest.sort((a, b) -> Long.compare(b.getValue().bytes.sum(), a.getValue().bytes.sum()));
+
+		long total = 0;
+		for (Map.Entry<Site, Counter> entry : largest) {
+			total += entry.getValue().bytes.sum();
+		}
+
+		out.printf("%-13s %10s %12s %6s  %-16s %6s  %s%n",
+			"kind", "count", "est. bytes", "%", "function", "line", "source");
+		for (Map.Entry<Site, Counter> entry : largest.subList(0, Math.min(top, largest.size()))) {
+			Site site = entry.getKey();
+			long bytes = entry.getValue().bytes.sum();
+			int line = Lines.of(site.statement);
+			String function = site.function == null ? "<script>" : ShadowStack.name(site.function);
+			String code = line > 0 && line <= text.length ? text[line - 1].trim() : "?";
+			out.printf("%-13s %10d %12d %5.1f%%  %-16s %6d  %s%n", site.kind.name().toLowerCase(),
+				entry.getValue().count.sum(), bytes, 100.0 * bytes / Math.max(1, total),
+				function, line, code);
+		}
+	}
+}
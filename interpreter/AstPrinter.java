@@ -50,7 +50,8 @@ class AstPrinter implements Expr.Visitor<String>, Stmt.Visitor<String> {
 
 	@Override
 	public String visitFunctionStmt(Stmt.Function statement) {
-		return "(fun " + statement.name.lexeme + ")";
+		String fun = statement.isAsync ? "(async fun " : "(fun ";
+		return fun + statement.name.lexeme + ")";
 	}
 
 	@Override
@@ -209,6 +210,11 @@ class AstPrinter implements Expr.Visitor<String>, Stmt.Visitor<String> {
 		return parenthesize(expr.operator.lexeme, expr.right);
 	}
 
+	@Override
+	public String visitAwaitExpr(Expr.Await expr) {
+		return parenthesize("await", expr.value);
+	}
+
 	@Override
 	public String visitTernaryExpr(Expr.Ternary expr) {
 		return parenthesize("?", expr.condition, expr.onTrue, expr.onFalse);
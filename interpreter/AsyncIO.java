@@ -0,0 +1,117 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// The I/O builtins that return promises. Files are read and written with
+// AsynchronousFileChannel and timers run on one shared scheduler thread, so a
+// pending operation holds a buffer and a callback, but no thread.
+class AsyncIO {
+	private static final ScheduledExecutorService timers =
+		Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "qed-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	// A promise of the contents of the file at [path]
+	static Promise readFile(final String path) {
+		final Promise promise = new Promise();
+		final AsynchronousFileChannel channel;
+		final ByteBuffer buffer;
+		try {
+			channel = AsynchronousFileChannel.open(Paths.get(path), StandardOpenOption.READ);
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				close(channel);
+				promise.fail(new NativeError("Can't read " + path + ": the file is too large"));
+				return promise;
+			}
+			buffer = ByteBuffer.allocate((int)size);
+		} catch (IOException | RuntimeException ex) {
+			promise.fail(new NativeError("Can't read " + path + ": " + ex));
+			return promise;
+		}
+
+		channel.read(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+			@Override
+			public void completed(Integer count, Void attachment) {
+				// a file can be shorter than its size by the time it's read
+				if (count >= 0 && buffer.hasRemaining()) {
+					channel.read(buffer, buffer.position(), null, this);
+					return;
+				}
+
+				close(channel);
+				promise.complete(new String(buffer.array(), 0, buffer.position(),
+					Charset.defaultCharset()));
+			}
+
+			@Override
+			public void failed(Throwable ex, Void attachment) {
+				close(channel);
+				promise.fail(new NativeError("Can't read " + path + ": " + ex));
+			}
+		});
+		return promise;
+	}
+
+	// A promise that's completed, with nil, once [text] is written
+	// to the file at [path], which is created or replaced
+	static Promise writeFile(final String path, String text) {
+		final Promise promise = new Promise();
+		final AsynchronousFileChannel channel;
+		try {
+			channel = AsynchronousFileChannel.open(Paths.get(path), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		} catch (IOException | RuntimeException ex) {
+			promise.fail(new NativeError("Can't write " + path + ": " + ex));
+			return promise;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(Charset.defaultCharset()));
+		channel.write(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+			@Override
+			public void completed(Integer count, Void attachment) {
+				if (buffer.hasRemaining()) {
+					channel.write(buffer, buffer.position(), null, this);
+					return;
+				}
+
+				close(channel);
+				promise.complete(null);
+			}
+
+			@Override
+			public void failed(Throwable ex, Void attachment) {
+				close(channel);
+				promise.fail(new NativeError("Can't write " + path + ": " + ex));
+			}
+		});
+		return promise;
+	}
+
+	// A promise that's completed, with nil, after [millis]
+	static Promise sleep(double millis) {
+		final Promise promise = new Promise();
+		timers.schedule(() -> promise.complete(null),
+			(long)(millis * 1000), TimeUnit.MICROSECONDS);
+		return promise;
+	}
+
+	private static void close(AsynchronousFileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			// the operation is over, nothing is lost
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package com.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+// Runs many scripts in one JVM for --batch, on a thread per core. Every
+// script runs in a runtime of its own, so scripts don't see each other's
+// globals, and its output and errors are captured and printed with its exit
+// status and time once it's done, in the order the scripts were given.
+class BatchRunner {
+	private static class Result {
+		final String path;
+		final int status;
+		final double millis;
+		final String out;
+		final String err;
+
+		Result(String path, int status, double millis, String out, String err) {
+			this.path = path;
+			this.status = status;
+			this.millis = millis;
+			this.out = out;
+			this.err = err;
+		}
+	}
+
+	private final boolean lazy;
+	private final boolean parallel;
+	private final boolean compact;
+
+	BatchRunner(boolean lazy, boolean parallel, boolean compact) {
+		this.lazy = lazy;
+		this.parallel = parallel;
+		this.compact = compact;
+	}
+
+	// Runs the scripts at [paths], and the .qed files in the directories
+	// among them, and returns the highest exit status of the scripts
+	int run(List<String> paths, PrintStream report) throws IOException {
+		List<Path> scripts = new ArrayList<>();
+		for (String path : paths) {
+			Path file = Paths.get(path);
+			if (Files.isDirectory(file)) {
+				try (Stream<Path> files = Files.walk(file)) {
+					List<Path> found = new ArrayList<>();
+					files.filter(f -> f.toString().endsWith(".qed") && Files.isRegularFile(f))
+						.forEach(found::add);
+					Collections.sort(found);
+					scripts.addAll(found);
+				}
+			} else {
+				scripts.add(file);
+			}
+		}
+
+		int cores = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(cores, runnable -> {
+			Thread thread = new Thread(runnable, "qed-batch");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long start = System.nanoTime();
+		List<Future<Result>> results = new ArrayList<>();
+		for (Path script : scripts) {
+			results.add(executor.submit(() -> runScript(script)));
+		}
+
+		int status = 0;
+		int failed = 0;
+		double total = 0;
+		for (Future<Result> future : results) {
+			Result result;
+			try {
+				result = future.get();
+			} catch (InterruptedException | ExecutionException ex) {
+				throw new IOException("Batch interrupted", ex);
+			}
+
+			report.printf("== %s: exit %d, %.1f ms%n", result.path, result.status, result.millis);
+			report.print(result.out);
+			report.print(result.err);
+
+			status = Math.max(status, result.status);
+			if (result.status != 0) ++failed;
+			total += result.millis;
+		}
+		executor.shutdown();
+
+		double wall = (System.nanoTime() - start) / 1e6;
+		report.printf("== %d scripts, %d failed, %.1f ms (%.1f ms of script time on %d threads)%n",
+			scripts.size(), failed, wall, total, cores);
+		return status;
+	}
+
+	private Result runScript(Path path) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		QedRuntime runtime = new QedRuntime(new PrintStream(out, false), new PrintStream(err, false));
+		runtime.lazy = lazy;
+		runtime.parallel = parallel;
+		runtime.compact = compact;
+		runtime.script = path.toString();
+
+		long start = System.nanoTime();
+		int status;
+		try {
+			byte[] bytes = Files.readAllBytes(path);
+			runtime.run(new String(bytes, Charset.defaultCharset()));
+			status = runtime.hadError ? 65 : runtime.hadRuntimeError ? 70 : 0;
+		} catch (IOException ex) {
+			runtime.err.println("Can't read " + path + ": " + ex.getMessage());
+			status = 66;
+		} catch (RuntimeException | StackOverflowError ex) {
+			runtime.err.println("Crashed: " + ex);
+			status = 70;
+		}
+		double millis = (System.nanoTime() - start) / 1e6;
+
+		runtime.out.flush();
+		runtime.err.flush();
+		return new Result(path.toString(), status, millis, out.toString(), err.toString());
+	}
+}
@@ -0,0 +1,276 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.ArrayList;
+
+// The native functions defined in the globals of every interpreter
+class Builtins {
+	// where blackhole() puts values, volatile so the writes can't be left out
+	private static volatile Object sink;
+
+	static void define(Environment globals) {
+		// clock() returns the seconds since the epoch
+		globals.define("clock", new NativeFunction("clock", 0) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return System.currentTimeMillis() / 1000.0;
+			}
+		});
+
+		// nanotime() returns nanoseconds from an arbitrary origin, for measuring
+		// elapsed time; the differences are exact for over 100 days of uptime
+		globals.define("nanotime", new NativeFunction("nanotime", 0) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return (double)System.nanoTime();
+			}
+		});
+
+		// floor(x) returns the largest integer not above x
+		globals.define("floor", new NativeFunction("floor", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (!(arguments.get(0) instanceof Double)) {
+					throw new NativeError("floor expects a number");
+				}
+				return Math.floor((double)arguments.get(0));
+			}
+		});
+
+		// blackhole(value) consumes value, so that the computation of a
+		// benchmark's result isn't removed as unused, now or by later optimizations
+		globals.define("blackhole", new NativeFunction("blackhole", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				sink = arguments.get(0);
+				return null;
+			}
+		});
+
+		// load(path) runs the script at path in the globals, for libraries
+		// such as lib/bench.qed. Relative paths are from the working directory.
+		globals.define("load", new NativeFunction("load", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				String path = string(arguments.get(0), "load");
+				String source;
+				try {
+					source = new String(Files.readAllBytes(Paths.get(path)), Charset.defaultCharset());
+				} catch (IOException | InvalidPathException ex) {
+					throw new NativeError("Can't read " + path + ": " + ex.getMessage());
+				}
+
+				List<Stmt> statements = interpreter.runtime.load(source);
+				if (statements == null) throw new NativeError("Can't load " + path);
+				interpreter.executeBlock(statements, interpreter.globals);
+				return null;
+			}
+		});
+
+		// spawn(fn) runs fn() concurrently and returns a task to join
+		globals.define("spawn", new NativeFunction("spawn", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				Callable function = callable(arguments.get(0), 0, "spawn");
+				return new Task(interpreter, function);
+			}
+		});
+
+		// join(task) waits for task and returns the value its function returned
+		globals.define("join", new NativeFunction("join", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (!(arguments.get(0) instanceof Task)) {
+					throw new NativeError("join expects a task");
+				}
+				final Task task = (Task)arguments.get(0);
+				return interpreter.runtime.loop.blocking(task::join);
+			}
+		});
+
+		// channel(capacity) creates a channel that holds up to capacity values
+		globals.define("channel", new NativeFunction("channel", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				Object capacity = arguments.get(0);
+				if (!(capacity instanceof Double) || (double)capacity < 1
+						|| (double)capacity != Math.floor((double)capacity)) {
+					throw new NativeError("channel expects a positive integer capacity");
+				}
+				return new Channel((int)Math.min((double)capacity, Channel.MAX_CAPACITY));
+			}
+		});
+
+		// send(channel, value) waits for room in channel and queues value
+		globals.define("send", new NativeFunction("send", 2) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				final Object value = arguments.get(1);
+				if (arguments.get(0) instanceof Port) {
+					final Port port = (Port)arguments.get(0);
+					interpreter.runtime.loop.blocking(() -> {
+						port.send(value);
+						return null;
+					});
+				} else {
+					final Channel channel = channel(arguments.get(0), "send");
+					interpreter.runtime.loop.blocking(() -> {
+						channel.send(value);
+						return null;
+					});
+				}
+				return null;
+			}
+		});
+
+		// receive(channel) waits for a value, nil once the channel is closed and empty
+		globals.define("receive", new NativeFunction("receive", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (arguments.get(0) instanceof Port) {
+					return interpreter.runtime.loop.blocking(((Port)arguments.get(0))::receive);
+				}
+				return interpreter.runtime.loop.blocking(channel(arguments.get(0), "receive")::receive);
+			}
+		});
+
+		globals.define("close", new NativeFunction("close", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (arguments.get(0) instanceof Port) {
+					((Port)arguments.get(0)).close();
+				} else {
+					channel(arguments.get(0), "close").close();
+				}
+				return null;
+			}
+		});
+
+		// select([channels]) waits for any of the channels
+		// and returns [index, value] of the one that's ready
+		globals.define("select", new NativeFunction("select", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (!(arguments.get(0) instanceof List)) {
+					throw new NativeError("select expects an array of channels");
+				}
+
+				List<Channel> channels = new ArrayList<>();
+				for (Object channel : (List<?>)arguments.get(0)) {
+					if (channel instanceof Port) {
+						channels.add(((Port)channel).incoming());
+					} else {
+						channels.add(channel(channel, "select"));
+					}
+				}
+				if (channels.isEmpty()) {
+					throw new NativeError("select expects at least one channel");
+				}
+				return interpreter.runtime.loop.blocking(() -> Channel.select(channels));
+			}
+		});
+
+		// readFile(path) returns a promise of the contents of the file
+		globals.define("readFile", new NativeFunction("readFile", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return AsyncIO.readFile(string(arguments.get(0), "readFile"));
+			}
+		});
+
+		// writeFile(path, text) returns a promise that's completed once text is written
+		globals.define("writeFile", new NativeFunction("writeFile", 2) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return AsyncIO.writeFile(string(arguments.get(0), "writeFile"),
+					string(arguments.get(1), "writeFile"));
+			}
+		});
+
+		// sleep(ms) returns a promise that's completed after ms milliseconds
+		globals.define("sleep", new NativeFunction("sleep", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (!(arguments.get(0) instanceof Double) || (double)arguments.get(0) < 0) {
+					throw new NativeError("sleep expects a number of milliseconds");
+				}
+				return AsyncIO.sleep((double)arguments.get(0));
+			}
+		});
+
+		// isolate(source) runs source in parallel with its own globals, and
+		// returns the port to exchange copied values with it through
+		globals.define("isolate", new NativeFunction("isolate", 1) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				if (!(arguments.get(0) instanceof String)) {
+					throw new NativeError("isolate expects the source of a script");
+				}
+				return Isolate.start(interpreter.runtime, (String)arguments.get(0));
+			}
+		});
+
+		// pmap(array, fn) returns [fn(a), fn(b), ...], calling fn in parallel
+		globals.define("pmap", new NativeFunction("pmap", 2) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return ParallelArray.map(interpreter, array(arguments.get(0), "pmap"),
+					callable(arguments.get(1), 1, "pmap"));
+			}
+		});
+
+		// pfilter(array, fn) returns the elements for which fn is truthy
+		globals.define("pfilter", new NativeFunction("pfilter", 2) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return ParallelArray.filter(interpreter, array(arguments.get(0), "pfilter"),
+					callable(arguments.get(1), 1, "pfilter"));
+			}
+		});
+
+		// preduce(array, fn, init) combines the elements with the associative
+		// fn(a, b), starting every part of the array from init
+		globals.define("preduce", new NativeFunction("preduce", 3) {
+			@Override
+			public Object call(Interpreter interpreter, List<Object> arguments) {
+				return ParallelArray.reduce(interpreter, array(arguments.get(0), "preduce"),
+					callable(arguments.get(1), 2, "preduce"), arguments.get(2));
+			}
+		});
+	}
+
+	private static List<Object> array(Object value, String name) {
+		if (!(value instanceof ArrayList)) {
+			throw new NativeError(name + " expects an array");
+		}
+		@SuppressWarnings("unchecked")
+		List<Object> array = (List<Object>)value;
+		return array;
+	}
+
+	private static String string(Object value, String name) {
+		if (!(value instanceof String)) {
+			throw new NativeError(name + " expects a string");
+		}
+		return (String)value;
+	}
+
+	private static Channel channel(Object value, String name) {
+		if (!(value instanceof Channel)) {
+			throw new NativeError(name + " expects a channel");
+		}
+		return (Channel)value;
+	}
+
+	private static Callable callable(Object value, int arity, String name) {
+		if (!(value instanceof Callable) || ((Callable)value).arity() != arity) {
+			throw new NativeError(name + " expects a function of " + arity + " arguments");
+		}
+		return (Callable)value;
+	}
+}
@@ -0,0 +1,175 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// A bounded queue of values between tasks. Values go through a lock free
+// queue, and two semaphores count the free slots and the queued values, so
+// send and receive only contend on CAS operations in the common case, and
+// block by parking, which doesn't hold an OS thread on a virtual thread. On
+// Java 17, where tasks are platform threads (see Task), a blocked sender or
+// receiver keeps its thread.
+//
+// Closing a channel makes send fail; receive returns the values that are
+// still queued, then nil.
+class Channel {
+	// close adds one slot to wake the blocked senders
+	static final int MAX_CAPACITY = Integer.MAX_VALUE - 1;
+	// the sign bit of [state] once the channel is closed
+	private static final int CLOSED_BIT = Integer.MIN_VALUE;
+
+	// the queue can't hold null
+	private static final Object NIL = new Object();
+	// queued by close, after the last value
+	private static final Object CLOSED = new Object();
+	// returned by poll when nothing is queued
+	private static final Object EMPTY = new Object();
+
+	private final ConcurrentLinkedQueue<Object> values = new ConcurrentLinkedQueue<>();
+	private final Semaphore slots;
+	private final Semaphore queued = new Semaphore(0);
+	// the number of senders between their closed check and the end of their
+	// enqueue, with CLOSED_BIT set by close, which waits for them to finish
+	// before queueing CLOSED, so no value is queued behind it
+	private final AtomicInteger state = new AtomicInteger(0);
+	// threads blocked in a select on this channel
+	private final Set<Thread> selectors = ConcurrentHashMap.newKeySet();
+
+	Channel(int capacity) {
+		slots = new Semaphore(capacity);
+	}
+
+	void send(Object value) {
+		if (state.get() < 0) throw new NativeError("Can't send on a closed channel");
+
+		acquire(slots);
+		if (!enter()) {
+			// pass the slot on to the next blocked sender, so they all fail
+			slots.release();
+			throw new NativeError("Can't send on a closed channel");
+		}
+
+		try {
+			values.offer(value == null ? NIL : value);
+			queued.release();
+		} finally {
+			state.decrementAndGet();
+		}
+		wakeSelectors();
+	}
+
+	Object receive() {
+		acquire(queued);
+		return take();
+	}
+
+	void close() {
+		for (;;) {
+			int current = state.get();
+			if (current < 0) return;
+			if (state.compareAndSet(current, current | CLOSED_BIT)) break;
+		}
+
+		// senders past their check only have an offer left
+		while (state.get() != CLOSED_BIT) {
+			Thread.onSpinWait();
+		}
+
+		values.offer(CLOSED);
+		queued.release();
+		// wake one blocked sender, which fails and wakes the next
+		slots.release();
+		wakeSelectors();
+	}
+
+	// Waits until one of [channels] has a value or is closed, and
+	// returns [index, value] for it. The value of a closed channel is nil.
+	static List<Object> select(List<Channel> channels) {
+		Thread thread = Thread.currentThread();
+		try {
+			for (;;) {
+				for (int i = 0; i < channels.size(); ++i) {
+					Object value = channels.get(i).poll();
+					if (value != EMPTY) {
+						List<Object> result = new ArrayList<>();
+						result.add((double)i);
+						result.add(value);
+						return result;
+					}
+				}
+
+				// register before checking again, so a value sent
+				// in between either is seen or unparks this thread
+				boolean ready = false;
+				for (Channel channel : channels) {
+					channel.selectors.add(thread);
+					ready |= channel.queued.availablePermits() > 0;
+				}
+
+				if (!ready) LockSupport.park(channels);
+				if (Thread.interrupted()) {
+					thread.interrupt();
+					throw new NativeError("Interrupted while waiting on a channel");
+				}
+			}
+		} finally {
+			for (Channel channel : channels) {
+				channel.selectors.remove(thread);
+			}
+		}
+	}
+
+	// Counts a sender in [state], unless the channel is closed
+	private boolean enter() {
+		for (;;) {
+			int current = state.get();
+			if (current < 0) return false;
+			if (state.compareAndSet(current, current + 1)) return true;
+		}
+	}
+
+	private Object poll() {
+		if (!queued.tryAcquire()) return EMPTY;
+		return take();
+	}
+
+	// Takes a value after acquiring it from [queued]
+	private Object take() {
+		Object value = values.poll();
+		if (value == CLOSED) {
+			// leave the mark for the other receivers
+			values.offer(CLOSED);
+			queued.release();
+			return null;
+		}
+
+		slots.release();
+		return value == NIL ? null : value;
+	}
+
+	private void wakeSelectors() {
+		for (Thread thread : selectors) {
+			LockSupport.unpark(thread);
+		}
+	}
+
+	private static void acquire(Semaphore semaphore) {
+		try {
+			semaphore.acquire();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new NativeError("Interrupted while waiting on a channel");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "<channel>";
+	}
+}
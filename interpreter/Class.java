@@ -5,11 +5,14 @@ import java.util.Map;
 
 class Class implements Callable {
 	final String name;
+	// the line of the declaration
+	final int line;
 	final Class superclass;
 	private final Map<String, Function> methods;
 
-	Class(String name, Class superclass, Map<String, Function> methods) {
+	Class(String name, int line, Class superclass, Map<String, Function> methods) {
 		this.name = name;
+		this.line = line;
 		this.superclass = superclass;
 		this.methods = methods;
 	}
@@ -36,10 +39,46 @@ class Class implements Callable {
 	}
 
 	public Object call(Interpreter interpreter, List<Object> arguments) {
+		Events.Instantiation event = new Events.Instantiation();
+		event.begin();
+		try {
+			return enter(interpreter, arguments);
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.script = interpreter.runtime.script;
+				event.className = name;
+				event.line = line;
+				event.commit();
+			}
+		}
+	}
+
+	// The instance and its bound initializer are allocated before the class
+	// is pushed on the shadow stack, so they're attributed to the caller
+	private Object enter(Interpreter interpreter, List<Object> arguments) {
+		interpreter.allocated(Allocation.INSTANCE, 0);
+		Metrics.metrics.instances.increment();
 		Instance instance = new Instance(this);
 		Function initializer = findMethod(instance, "init");
-		if (initializer != null)
-			initializer.call(interpreter, arguments);
+		if (initializer != null) {
+			interpreter.allocated(Allocation.BOUND_METHOD, 0);
+		}
+
+		ShadowStack stack = interpreter.stack;
+		if (stack == null) return initialize(interpreter, instance, initializer, arguments);
+
+		stack.push(this);
+		try {
+			return initialize(interpreter, instance, initializer, arguments);
+		} finally {
+			stack.pop();
+		}
+	}
+
+	private Object initialize(Interpreter interpreter, Instance instance,
+			Function initializer, List<Object> arguments) {
+		if (initializer != null) initializer.call(interpreter, arguments);
 		return instance;
 	}
 
@@ -0,0 +1,488 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.HashMap;
+
+// A program encoded in a few flat arrays instead of a tree of nodes.
+//
+// Each node is a record in [code]: its kind followed by its fields. Child
+// nodes are offsets into [code] (-1 for null), lists are a count followed
+// by the elements, literals are indices into the constant [pool]. Tokens
+// are indices into [tokens], which packs the type and the pool index of the
+// lexeme, and into the line table [lines].
+//
+// Decoding builds ordinary Expr and Stmt nodes, so the interpreter, the
+// resolver and the printer run on them unchanged. Function bodies are only
+// decoded when the function is first called (see LazyBody), so the code
+// that never runs stays in the arrays. Decoded bodies are ordinary trees,
+// and the arrays are kept until the last body is decoded, so a program
+// that calls all of its functions ends up holding about as much as the
+// tree it was encoded from (see CompactAstBench).
+class CompactAst {
+	// Node kinds
+	private static final int ARRAY = 0;
+	private static final int ASSIGN = 1;
+	private static final int BINARY = 2;
+	private static final int CALL = 3;
+	private static final int GET = 4;
+	private static final int SET = 5;
+	private static final int ARRAY_GET = 6;
+	private static final int ARRAY_SET = 7;
+	private static final int THIS = 8;
+	private static final int SUPER = 9;
+	private static final int LOGICAL = 10;
+	private static final int GROUPING = 11;
+	private static final int LITERAL = 12;
+	private static final int UNARY = 13;
+	private static final int TERNARY = 14;
+	private static final int VARIABLE = 15;
+	private static final int BLOCK = 16;
+	private static final int EXPRESSION = 17;
+	private static final int FUNCTION = 18;
+	private static final int CLASS = 19;
+	private static final int IF = 20;
+	private static final int WHILE = 21;
+	private static final int FOR = 22;
+	private static final int BREAK = 23;
+	private static final int CONTINUE = 24;
+	private static final int PRINT = 25;
+	private static final int RETURN = 26;
+	private static final int VAR = 27;
+	private static final int AWAIT = 28;
+	// a function record of an async function
+	private static final int ASYNC_FUNCTION = 29;
+
+	private static final TokenType[] tokenTypes = TokenType.values();
+
+	private final int[] code;
+	private final long[] tokens;
+	private final int[] lines;
+	private final Object[] pool;
+	// offsets of the top level statements
+	private final int[] roots;
+
+	private CompactAst(int[] code, long[] tokens, int[] lines, Object[] pool, int[] roots) {
+		this.code = code;
+		this.tokens = tokens;
+		this.lines = lines;
+		this.pool = pool;
+		this.roots = roots;
+	}
+
+	static CompactAst encode(List<Stmt> statements) {
+		return new Encoder().encode(statements);
+	}
+
+	// number of top level statements
+	int size() {
+		return roots.length;
+	}
+
+	List<Stmt> decode() {
+		List<Stmt> statements = new ArrayList<>(roots.length);
+		for (int root : roots) {
+			statements.add(stmt(root));
+		}
+		return statements;
+	}
+
+	// Size of the arrays, without the strings and numbers in the pool
+	// which the tree shares with the tokens anyway
+	long bytes() {
+		return 4L * code.length + 8L * tokens.length
+			+ 4L * lines.length + 4L * pool.length + 4L * roots.length;
+	}
+
+	// Decodes the body of the function at [node], for LazyBody
+	List<Stmt> functionBody(int node) {
+		int body = node + 3 + code[node + 2];
+		return stmts(body);
+	}
+
+	private Stmt stmt(int node) {
+		if (node == -1) return null;
+
+		switch (code[node]) {
+			case BLOCK:
+				return new Stmt.Block(stmts(node + 1));
+			case EXPRESSION:
+				return new Stmt.Expression(expr(code[node + 1]));
+			case FUNCTION:
+			case ASYNC_FUNCTION:
+				return function(node);
+			case CLASS: {
+				int count = code[node + 3];
+				List<Stmt.Function> methods = new ArrayList<>(count);
+				for (int i = 0; i < count; ++i) {
+					methods.add(function(code[node + 4 + i]));
+				}
+				return new Stmt.Class(token(code[node + 1]),
+					(Expr.Variable)expr(code[node + 2]), methods);
+			}
+			case IF:
+				return new Stmt.If(expr(code[node + 1]),
+					stmt(code[node + 2]), stmt(code[node + 3]));
+			case WHILE:
+				return new Stmt.While(expr(code[node + 1]), stmt(code[node + 2]));
+			case FOR:
+				return new Stmt.For(stmt(code[node + 1]), expr(code[node + 2]),
+					expr(code[node + 3]), stmt(code[node + 4]));
+			case BREAK:
+				return new Stmt.Break();
+			case CONTINUE:
+				return new Stmt.Continue();
+			case PRINT:
+				return new Stmt.Print(exprs(node + 1));
+			case RETURN:
+				return new Stmt.Return(token(code[node + 1]), expr(code[node + 2]));
+			case VAR:
+				return new Stmt.Var(token(code[node + 1]), expr(code[node + 2]));
+		}
+
+		throw new IllegalStateException("Not a statement: " + code[node]);
+	}
+
+	private Stmt.Function function(int node) {
+		int count = code[node + 2];
+		List<Token> parameters = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			parameters.add(token(code[node + 3 + i]));
+		}
+
+		return new Stmt.Function(token(code[node + 1]), parameters,
+			new ArrayList<>(), new LazyBody(this, node), code[node] == ASYNC_FUNCTION);
+	}
+
+	private Expr expr(int node) {
+		if (node == -1) return null;
+
+		switch (code[node]) {
+			case ARRAY:
+				return new Expr.Array(exprs(node + 1));
+			case ASSIGN:
+				return new Expr.Assign(token(code[node + 1]), expr(code[node + 2]));
+			case BINARY:
+				return new Expr.Binary(expr(code[node + 1]),
+					token(code[node + 2]), expr(code[node + 3]));
+			case CALL:
+				return new Expr.Call(expr(code[node + 1]),
+					token(code[node + 2]), exprs(node + 3));
+			case GET:
+				return new Expr.Get(expr(code[node + 1]), token(code[node + 2]));
+			case SET:
+				return new Expr.Set(expr(code[node + 1]),
+					token(code[node + 2]), expr(code[node + 3]));
+			case ARRAY_GET:
+				return new Expr.ArrayGet(expr(code[node + 1]),
+					token(code[node + 2]), expr(code[node + 3]));
+			case ARRAY_SET:
+				return new Expr.ArraySet(expr(code[node + 1]), token(code[node + 2]),
+					expr(code[node + 3]), expr(code[node + 4]));
+			case THIS:
+				return new Expr.This(token(code[node + 1]));
+			case SUPER:
+				return new Expr.Super(token(code[node + 1]), token(code[node + 2]));
+			case LOGICAL:
+				return new Expr.Logical(expr(code[node + 1]),
+					token(code[node + 2]), expr(code[node + 3]));
+			case GROUPING:
+				return new Expr.Grouping(expr(code[node + 1]));
+			case LITERAL:
+				return new Expr.Literal(pool[code[node + 1]]);
+			case UNARY:
+				return new Expr.Unary(token(code[node + 1]), expr(code[node + 2]));
+			case AWAIT:
+				return new Expr.Await(token(code[node + 1]), expr(code[node + 2]));
+			case TERNARY:
+				return new Expr.Ternary(expr(code[node + 1]),
+					expr(code[node + 2]), expr(code[node + 3]));
+			case VARIABLE:
+				return new Expr.Variable(token(code[node + 1]));
+		}
+
+		throw new IllegalStateException("Not an expression: " + code[node]);
+	}
+
+	// Decodes the list whose count is at [offset]
+	private List<Stmt> stmts(int offset) {
+		int count = code[offset];
+		List<Stmt> statements = new ArrayList<>(count);
+		for (int i = 1; i <= count; ++i) {
+			statements.add(stmt(code[offset + i]));
+		}
+		return statements;
+	}
+
+	private List<Expr> exprs(int offset) {
+		int count = code[offset];
+		List<Expr> expressions = new ArrayList<>(count);
+		for (int i = 1; i <= count; ++i) {
+			expressions.add(expr(code[offset + i]));
+		}
+		return expressions;
+	}
+
+	private Token token(int index) {
+		long packed = tokens[index];
+		return new Token(tokenTypes[(int)(packed >>> 32)],
+			(String)pool[(int)packed], null, lines[index]);
+	}
+
+	private static class Encoder implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+		// the key of nil in [poolIndex], which can't be keyed by null
+		private static final Object NIL = new Object();
+
+		private int[] code = new int[1024];
+		private int codeSize = 0;
+		private long[] tokens = new long[256];
+		private int[] lines = new int[256];
+		private int tokenCount = 0;
+		private final List<Object> pool = new ArrayList<>();
+		private final Map<Object, Integer> poolIndex = new HashMap<>();
+
+		CompactAst encode(List<Stmt> statements) {
+			int[] roots = new int[statements.size()];
+			for (int i = 0; i < roots.length; ++i) {
+				roots[i] = stmt(statements.get(i));
+			}
+
+			return new CompactAst(Arrays.copyOf(code, codeSize),
+				Arrays.copyOf(tokens, tokenCount), Arrays.copyOf(lines, tokenCount),
+				pool.toArray(), roots);
+		}
+
+		// Appends a node record and returns its offset
+		private int node(int... fields) {
+			if (codeSize + fields.length > code.length) {
+				code = Arrays.copyOf(code, Math.max(code.length * 2, codeSize + fields.length));
+			}
+			int offset = codeSize;
+			System.arraycopy(fields, 0, code, codeSize, fields.length);
+			codeSize += fields.length;
+			return offset;
+		}
+
+		// A node with [fields] followed by the list [elements]
+		private int node(int[] fields, int[] elements) {
+			int[] record = Arrays.copyOf(fields, fields.length + 1 + elements.length);
+			record[fields.length] = elements.length;
+			System.arraycopy(elements, 0, record, fields.length + 1, elements.length);
+			return node(record);
+		}
+
+		private int stmt(Stmt stmt) {
+			if (stmt == null) return -1;
+			return stmt.accept(this);
+		}
+
+		private int expr(Expr expr) {
+			if (expr == null) return -1;
+			return expr.accept(this);
+		}
+
+		private int[] stmts(List<? extends Stmt> statements) {
+			int[] offsets = new int[statements.size()];
+			for (int i = 0; i < offsets.length; ++i) {
+				offsets[i] = stmt(statements.get(i));
+			}
+			return offsets;
+		}
+
+		private int[] exprs(List<Expr> expressions) {
+			int[] offsets = new int[expressions.size()];
+			for (int i = 0; i < offsets.length; ++i) {
+				offsets[i] = expr(expressions.get(i));
+			}
+			return offsets;
+		}
+
+		private int token(Token token) {
+			if (tokenCount == tokens.length) {
+				tokens = Arrays.copyOf(tokens, tokenCount * 2);
+				lines = Arrays.copyOf(lines, tokenCount * 2);
+			}
+			tokens[tokenCount] = ((long)token.type.ordinal() << 32) | constant(token.lexeme);
+			lines[tokenCount] = token.line;
+			return tokenCount++;
+		}
+
+		private int constant(Object value) {
+			Object key = value == null ? NIL : value;
+			Integer index = poolIndex.get(key);
+			if (index == null) {
+				index = pool.size();
+				pool.add(value);
+				poolIndex.put(key, index);
+			}
+			return index;
+		}
+
+		@Override
+		public Integer visitBlockStmt(Stmt.Block stmt) {
+			return node(new int[] {BLOCK}, stmts(stmt.statements));
+		}
+
+		@Override
+		public Integer visitExpressionStmt(Stmt.Expression stmt) {
+			return node(EXPRESSION, expr(stmt.expression));
+		}
+
+		@Override
+		public Integer visitFunctionStmt(Stmt.Function stmt) {
+			if (stmt.lazy != null && !stmt.lazy.isParsed()) {
+				throw new IllegalArgumentException("Can't encode the unparsed body of "
+					+ stmt.name.lexeme);
+			}
+
+			int[] body = stmts(stmt.body);
+			int[] record = new int[3 + stmt.parameters.size() + 1 + body.length];
+			record[0] = stmt.isAsync ? ASYNC_FUNCTION : FUNCTION;
+			record[1] = token(stmt.name);
+			record[2] = stmt.parameters.size();
+			for (int i = 0; i < stmt.parameters.size(); ++i) {
+				record[3 + i] = token(stmt.parameters.get(i));
+			}
+			record[3 + stmt.parameters.size()] = body.length;
+			System.arraycopy(body, 0, record, 4 + stmt.parameters.size(), body.length);
+			return node(record);
+		}
+
+		@Override
+		public Integer visitClassStmt(Stmt.Class stmt) {
+			int[] methods = stmts(stmt.methods);
+			return node(new int[] {CLASS, token(stmt.name), expr(stmt.superclass)}, methods);
+		}
+
+		@Override
+		public Integer visitIfStmt(Stmt.If stmt) {
+			return node(IF, expr(stmt.condition),
+				stmt(stmt.thenBranch), stmt(stmt.elseBranch));
+		}
+
+		@Override
+		public Integer visitWhileStmt(Stmt.While stmt) {
+			return node(WHILE, expr(stmt.condition), stmt(stmt.body));
+		}
+
+		@Override
+		public Integer visitForStmt(Stmt.For stmt) {
+			return node(FOR, stmt(stmt.initializer), expr(stmt.condition),
+				expr(stmt.increment), stmt(stmt.body));
+		}
+
+		@Override
+		public Integer visitBreakStmt(Stmt.Break stmt) {
+			return node(BREAK);
+		}
+
+		@Override
+		public Integer visitContinueStmt(Stmt.Continue stmt) {
+			return node(CONTINUE);
+		}
+
+		@Override
+		public Integer visitPrintStmt(Stmt.Print stmt) {
+			return node(new int[] {PRINT}, exprs(stmt.expressions));
+		}
+
+		@Override
+		public Integer visitReturnStmt(Stmt.Return stmt) {
+			return node(RETURN, token(stmt.keyword), expr(stmt.value));
+		}
+
+		@Override
+		public Integer visitVarStmt(Stmt.Var stmt) {
+			return node(VAR, token(stmt.name), expr(stmt.initializer));
+		}
+
+		@Override
+		public Integer visitArrayExpr(Expr.Array expr) {
+			return node(new int[] {ARRAY}, exprs(expr.values));
+		}
+
+		@Override
+		public Integer visitAssignExpr(Expr.Assign expr) {
+			return node(ASSIGN, token(expr.name), expr(expr.value));
+		}
+
+		@Override
+		public Integer visitBinaryExpr(Expr.Binary expr) {
+			return node(BINARY, expr(expr.left), token(expr.operator), expr(expr.right));
+		}
+
+		@Override
+		public Integer visitCallExpr(Expr.Call expr) {
+			return node(new int[] {CALL, expr(expr.callee), token(expr.paren)},
+				exprs(expr.arguments));
+		}
+
+		@Override
+		public Integer visitGetExpr(Expr.Get expr) {
+			return node(GET, expr(expr.object), token(expr.name));
+		}
+
+		@Override
+		public Integer visitSetExpr(Expr.Set expr) {
+			return node(SET, expr(expr.object), token(expr.name), expr(expr.value));
+		}
+
+		@Override
+		public Integer visitArrayGetExpr(Expr.ArrayGet expr) {
+			return node(ARRAY_GET, expr(expr.array), token(expr.bracket), expr(expr.index));
+		}
+
+		@Override
+		public Integer visitArraySetExpr(Expr.ArraySet expr) {
+			return node(ARRAY_SET, expr(expr.array), token(expr.bracket),
+				expr(expr.index), expr(expr.value));
+		}
+
+		@Override
+		public Integer visitThisExpr(Expr.This expr) {
+			return node(THIS, token(expr.keyword));
+		}
+
+		@Override
+		public Integer visitSuperExpr(Expr.Super expr) {
+			return node(SUPER, token(expr.keyword), token(expr.method));
+		}
+
+		@Override
+		public Integer visitLogicalExpr(Expr.Logical expr) {
+			return node(LOGICAL, expr(expr.left), token(expr.operator), expr(expr.right));
+		}
+
+		@Override
+		public Integer visitGroupingExpr(Expr.Grouping expr) {
+			return node(GROUPING, expr(expr.expression));
+		}
+
+		@Override
+		public Integer visitLiteralExpr(Expr.Literal expr) {
+			return node(LITERAL, constant(expr.value));
+		}
+
+		@Override
+		public Integer visitUnaryExpr(Expr.Unary expr) {
+			return node(UNARY, token(expr.operator), expr(expr.right));
+		}
+
+		@Override
+		public Integer visitAwaitExpr(Expr.Await expr) {
+			return node(AWAIT, token(expr.keyword), expr(expr.value));
+		}
+
+		@Override
+		public Integer visitTernaryExpr(Expr.Ternary expr) {
+			return node(TERNARY, expr(expr.condition), expr(expr.onTrue), expr(expr.onFalse));
+		}
+
+		@Override
+		public Integer visitVariableExpr(Expr.Variable expr) {
+			return node(VARIABLE, token(expr.name));
+		}
+	}
+}
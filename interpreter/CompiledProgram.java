@@ -0,0 +1,131 @@
+package com.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// The embedding API. A source is scanned, parsed and resolved once into
+// an immutable CompiledProgram, which can then be executed any number of
+// times, from any number of threads at once.
+//
+// Each execution runs with its own globals in a runtime taken from a pool
+// that belongs to the program, so executions only cost the interpretation
+// itself. Arguments are defined as globals before the script runs, and the
+// globals it leaves behind are returned in the Execution with its output.
+public final class CompiledProgram {
+	private final List<Stmt> statements;
+	private final Map<Expr, Integer> locals;
+	private final ConcurrentLinkedQueue<Context> pool = new ConcurrentLinkedQueue<>();
+
+	// A pooled runtime and the buffers its streams write to
+	private class Context {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ByteArrayOutputStream err = new ByteArrayOutputStream();
+		final QedRuntime runtime = new QedRuntime(
+			new PrintStream(out, false), new PrintStream(err, false), locals);
+
+		void reset() {
+			runtime.interpreter.reset();
+			runtime.scheduler = null;
+			runtime.hadRuntimeError = false;
+			out.reset();
+			err.reset();
+		}
+	}
+
+	private CompiledProgram(List<Stmt> statements, Map<Expr, Integer> locals) {
+		this.statements = Collections.unmodifiableList(statements);
+		this.locals = Collections.unmodifiableMap(locals);
+	}
+
+	public static CompiledProgram compile(String source) throws QedException {
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		QedRuntime runtime = new QedRuntime(System.out, new PrintStream(err, true));
+
+		// bodies are parsed up front, lazy ones would
+		// be parsed by whichever execution calls them first
+		List<Stmt> statements = runtime.load(source);
+		if (statements == null) {
+			throw new QedException(err.toString().trim());
+		}
+
+		return new CompiledProgram(statements, runtime.interpreter.locals);
+	}
+
+	public Execution execute() throws QedException {
+		return execute(Collections.<String, Object>emptyMap());
+	}
+
+	// Runs the program with each of [arguments] defined as a global. Numbers,
+	// strings, booleans, null and Lists of them can be passed.
+	public Execution execute(Map<String, ?> arguments) throws QedException {
+		return execute(arguments, null);
+	}
+
+	// Runs the program taking turns on [scheduler], if it isn't null
+	Execution execute(Map<String, ?> arguments, Scheduler scheduler) throws QedException {
+		Context context = pool.poll();
+		if (context == null) context = new Context();
+
+		try {
+			final QedRuntime runtime = context.runtime;
+			for (Map.Entry<String, ?> argument : arguments.entrySet()) {
+				runtime.interpreter.globals.define(argument.getKey(), toQed(argument.getValue()));
+			}
+
+			runtime.scheduler = scheduler;
+			runtime.scheduled(() -> {
+				runtime.interpreter.interpret(statements);
+				return null;
+			});
+
+			runtime.out.flush();
+			runtime.err.flush();
+			if (runtime.hadRuntimeError) {
+				throw new QedException(context.err.toString().trim());
+			}
+
+			return new Execution(context.out.toString(),
+				runtime.interpreter.globals.snapshot());
+		} finally {
+			context.reset();
+			pool.offer(context);
+		}
+	}
+
+	// A new runtime, with its own globals, for run()
+	QedRuntime runtime(PrintStream out, PrintStream err) {
+		return new QedRuntime(out, err, locals);
+	}
+
+	// Runs the program in [runtime], which writes to its own streams
+	void run(QedRuntime runtime) {
+		runtime.interpreter.interpret(statements);
+	}
+
+	private static Object toQed(Object value) {
+		if (value == null || value instanceof String
+				|| value instanceof Boolean || value instanceof Double) {
+			return value;
+		}
+
+		if (value instanceof Number) {
+			return ((Number)value).doubleValue();
+		}
+
+		if (value instanceof List) {
+			List<Object> array = new ArrayList<>();
+			for (Object element : (List<?>)value) {
+				array.add(toQed(element));
+			}
+			return array;
+		}
+
+		throw new IllegalArgumentException(
+			"Can't pass a " + value.getClass().getName() + " to QED");
+	}
+}
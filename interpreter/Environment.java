@@ -19,6 +19,15 @@ class Environment {
 		values.put(name, value);
 	}
 
+	void clear() {
+		values.clear();
+	}
+
+	// A copy of the variables defined directly in this environment
+	Map<String, Object> snapshot() {
+		return new HashMap<>(values);
+	}
+
 	void assign(Token name, Object value) {
 		if (values.containsKey(name.lexeme)) {
 			values.put(name.lexeme, value);
@@ -0,0 +1,108 @@
+package com.interpreter;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Runs the async function calls of a runtime one at a time, switching
+// between them only where one awaits, as a single threaded event loop does.
+//
+// It isn't one: the interpreter keeps a call's state on the Java stack, so
+// an async call can't be suspended as a continuation. Instead the QED code
+// of the runtime only runs while holding [turn]. The script holds it from
+// the start, each async call runs on a thread of its own that waits for its
+// turn, and await gives the turn up until the awaited promise completes. So
+// every unfinished call holds a thread: a virtual thread on Java 21 and
+// later, and a platform thread from the cached pool of Task on Java 17. The
+// async I/O builtins (see AsyncIO) hold no thread while they're pending, so
+// any number of them can be in flight at once.
+//
+// Tasks run outside the loop: they don't take turns, and await in a task
+// just waits. Builtins that block on tasks and channels give the turn up
+// while they wait (see blocking), so that async calls can keep running.
+class EventLoop {
+	// fair, so that waiting calls run in the order they became ready
+	private final ReentrantLock turn = new ReentrantLock(true);
+	private final QedRuntime runtime;
+	// async calls that haven't finished, or failed without being awaited
+	private final Set<Promise> pending = ConcurrentHashMap.newKeySet();
+
+	EventLoop(QedRuntime runtime) {
+		this.runtime = runtime;
+	}
+
+	// Starts running the script on the loop
+	void enter() {
+		turn.lock();
+	}
+
+	// Waits for the async calls the script left running. An error of
+	// a call that nobody awaited is thrown here.
+	void drain() {
+		for (;;) {
+			Iterator<Promise> calls = pending.iterator();
+			if (!calls.hasNext()) return;
+			await(calls.next());
+		}
+	}
+
+	// Stops running the script on the loop
+	void leave() {
+		turn.unlock();
+	}
+
+	// Runs [body] as an async call, once the code
+	// that holds the turn awaits or finishes
+	Promise async(Supplier<Object> body) {
+		final Promise promise = new Promise();
+		pending.add(promise);
+
+		Task.executor.execute(() -> {
+			turn.lock();
+			try {
+				Object value = runtime.scheduled(body);
+				pending.remove(promise);
+				promise.complete(value);
+			} catch (Throwable error) {
+				// Errors too, or the promise would never complete; they're
+				// rethrown where the promise is awaited or drained
+				promise.fail(error);
+			} finally {
+				turn.unlock();
+			}
+		});
+		return promise;
+	}
+
+	// The value of [value] if it's a promise, otherwise [value] itself
+	Object await(Object value) {
+		if (!(value instanceof Promise)) return value;
+
+		Promise promise = (Promise)value;
+		try {
+			if (promise.isDone()) return promise.get();
+			return blocking(promise::get);
+		} finally {
+			// its error, if any, is thrown to this await
+			pending.remove(promise);
+		}
+	}
+
+	// Runs [wait], which blocks, with the turn and the permit of the
+	// scheduler, if any, given up. They're taken back in the order threads
+	// take them when they start, the turn first, so that a thread holding
+	// a permit never waits for the turn.
+	<T> T blocking(Supplier<T> wait) {
+		boolean scheduled = runtime.scheduler != null && runtime.scheduler.leave();
+		boolean held = turn.isHeldByCurrentThread();
+		if (held) turn.unlock();
+		try {
+			return wait.get();
+		} finally {
+			if (held) turn.lock();
+			if (scheduled) runtime.scheduler.enter();
+		}
+	}
+}
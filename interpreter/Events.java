@@ -0,0 +1,99 @@
+package com.interpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// The Java Flight Recorder events of QED scripts, under "QED" in JMC.
+//
+// While nothing records them, begin(), shouldCommit() and commit() return
+// at once and the JIT removes the event objects, so the events are created
+// unconditionally and their fields are only set if they will be committed.
+// The stack traces would be of the interpreter, so they are left out.
+final class Events {
+	private Events() {
+	}
+
+	@Name("qed.Phase")
+	@Label("QED Phase")
+	@Description("Scanning, parsing or resolving a script")
+	@Category("QED")
+	@StackTrace(false)
+	static class Phase extends Event {
+		@Label("Script")
+		String script;
+
+		@Label("Phase")
+		String phase;
+	}
+
+	@Name("qed.Call")
+	@Label("QED Call")
+	@Description("A call of a QED function that took longer than the threshold")
+	@Category("QED")
+	@StackTrace(false)
+	@Threshold("1 ms")
+	static class Call extends Event {
+		@Label("Script")
+		String script;
+
+		@Label("Function")
+		String function;
+
+		@Label("Line")
+		@Description("The line the function is declared at")
+		int line;
+	}
+
+	@Name("qed.Instantiation")
+	@Label("QED Instantiation")
+	@Description("An instance of a QED class being created and initialized")
+	@Category("QED")
+	@StackTrace(false)
+	static class Instantiation extends Event {
+		@Label("Script")
+		String script;
+
+		@Label("Class")
+		String className;
+
+		@Label("Line")
+		@Description("The line the class is declared at")
+		int line;
+	}
+
+	@Name("qed.RuntimeError")
+	@Label("QED Runtime Error")
+	@Description("A runtime error that ended a script")
+	@Category("QED")
+	@StackTrace(false)
+	static class Error extends Event {
+		@Label("Script")
+		String script;
+
+		@Label("Function")
+		@Description("The innermost function the error was raised in, empty at the top level")
+		String function;
+
+		@Label("Line")
+		int line;
+
+		@Label("Message")
+		String message;
+	}
+
+	// A started phase event, to commit() when the phase is done
+	static Phase phase(QedRuntime runtime, String phase) {
+		Phase event = new Phase();
+		event.begin();
+		if (event.isEnabled()) {
+			event.script = runtime.script;
+			event.phase = phase;
+		}
+		return event;
+	}
+}
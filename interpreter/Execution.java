@@ -0,0 +1,30 @@
+package com.interpreter;
+
+import java.util.Map;
+
+// The outcome of one execution of a CompiledProgram: what the script
+// printed and the global variables it left behind.
+public final class Execution {
+	private final String output;
+	private final Map<String, Object> globals;
+
+	Execution(String output, Map<String, Object> globals) {
+		this.output = output;
+		this.globals = globals;
+	}
+
+	// Everything the script printed
+	public String output() {
+		return output;
+	}
+
+	// The value of the global [name] at the end of the script. Numbers are
+	// Doubles, arrays are Lists, and nil or an undefined global is null.
+	public Object get(String name) {
+		return globals.get(name);
+	}
+
+	public boolean has(String name) {
+		return globals.containsKey(name);
+	}
+}
@@ -19,6 +19,7 @@ abstract class Expr {
         R visitLiteralExpr(Literal expr);
         R visitUnaryExpr(Unary expr);
         R visitTernaryExpr(Ternary expr);
+        R visitAwaitExpr(Await expr);
         R visitVariableExpr(Variable expr);
     }
 
@@ -242,6 +243,20 @@ abstract class Expr {
         final Expr onFalse;
     }
 
+    static class Await extends Expr {
+        Await(Token keyword, Expr value) {
+            this.keyword = keyword;
+            this.value = value;
+        }
+
+        <R> R accept(Visitor<R> visitor) {
+            return visitor.visitAwaitExpr(this);
+        }
+
+        final Token keyword;
+        final Expr value;
+    }
+
     static class Variable extends Expr {
         Variable(Token name) {
             this.name = name;
@@ -27,6 +27,56 @@ class Function implements Callable {
 
 	@Override
 	public Object call(Interpreter interpreter, List<Object> arguments) {
+		if (declaration.lazy != null) {
+			declaration.lazy.materialize(declaration);
+		}
+
+		if (declaration.isAsync) {
+			// the call runs on its own thread, so it needs its own environment pointer
+			final Interpreter async = interpreter.child();
+			return interpreter.runtime.loop.async(() -> execute(async, arguments));
+		}
+		return execute(interpreter, arguments);
+	}
+
+	private Object execute(Interpreter interpreter, List<Object> arguments) {
+		Events.Call event = new Events.Call();
+		event.begin();
+		interpreter.called();
+		TraceRecorder trace = interpreter.runtime.trace;
+		if (trace != null) trace.enter(declaration);
+		try {
+			return enter(interpreter, arguments);
+		} catch (RuntimeError error) {
+			if (error.function == null) error.function = declaration.name.lexeme;
+			throw error;
+		} finally {
+			if (trace != null) trace.exit(declaration);
+			interpreter.returned();
+			event.end();
+			if (event.shouldCommit()) {
+				event.script = interpreter.runtime.script;
+				event.function = declaration.name.lexeme;
+				event.line = declaration.name.line;
+				event.commit();
+			}
+		}
+	}
+
+	private Object enter(Interpreter interpreter, List<Object> arguments) {
+		ShadowStack stack = interpreter.stack;
+		if (stack == null) return invoke(interpreter, arguments);
+
+		stack.push(declaration);
+		try {
+			return invoke(interpreter, arguments);
+		} finally {
+			stack.pop();
+		}
+	}
+
+	private Object invoke(Interpreter interpreter, List<Object> arguments) {
+		interpreter.allocated(Allocation.ENVIRONMENT, arguments.size());
 		Environment env = new Environment(this.closure);
 		for (int i = 0; i < arguments.size(); ++i) {
 			env.define(
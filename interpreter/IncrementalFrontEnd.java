@@ -0,0 +1,165 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.HashMap;
+
+// Scans, parses and resolves a script that is resubmitted as a whole after
+// every edit, as editors do. The source is split into its top level
+// declarations, and the statements and resolved locals of a declaration are
+// reused for as long as its text is unchanged. A declaration that only moved,
+// because lines were added or removed above it, is reused as well, with a copy
+// of its statements whose tokens are at its new line (see Relocator), so
+// that statements which already ran keep their lines.
+//
+// Top level declarations are resolved in the global scope, where names are
+// looked up at runtime, so the resolution of a declaration doesn't depend on
+// the other declarations and only the edited ones need to be resolved again.
+//
+// The REPL uses add() instead of update(): each input is new code, and the
+// declarations of earlier inputs stay, but repeated inputs are reused.
+class IncrementalFrontEnd {
+	private static class Entry {
+		final List<Stmt> statements;
+		final Map<Expr, Integer> locals;
+		// the line the declaration starts at
+		final int line;
+
+		Entry(List<Stmt> statements, Map<Expr, Integer> locals, int line) {
+			this.statements = statements;
+			this.locals = locals;
+			this.line = line;
+		}
+	}
+
+	private final Map<Expr, Integer> locals;
+	private final QedRuntime runtime;
+	// declarations of the last update by their text; a declaration
+	// can appear several times, so each text has a queue of entries
+	private Map<String, Deque<Entry>> cache = new HashMap<>();
+	private int declarations = 0;
+	private int reparsed = 0;
+
+	IncrementalFrontEnd(Interpreter interpreter) {
+		this.locals = interpreter.locals;
+		this.runtime = interpreter.runtime;
+	}
+
+	// Returns the statements of [source]. runtime.hadError is set
+	// if any declaration has an error, as with a full parse.
+	List<Stmt> update(String source) {
+		Map<String, Deque<Entry>> previous = cache;
+		cache = new HashMap<>();
+		List<Entry> moved = new ArrayList<>();
+		List<Stmt> statements = process(source, previous, moved);
+
+		// the declarations that were edited, removed or moved
+		for (Deque<Entry> entries : previous.values()) {
+			for (Entry entry : entries) {
+				locals.keySet().removeAll(entry.locals.keySet());
+			}
+		}
+		for (Entry entry : moved) {
+			locals.keySet().removeAll(entry.locals.keySet());
+		}
+
+		return statements;
+	}
+
+	// Returns the statements of [source], which is added to the program
+	// rather than replacing it, so nothing is dropped
+	List<Stmt> add(String source) {
+		// reused entries are taken out of the cache and put back with the new ones
+		return process(source, cache, null);
+	}
+
+	int declarations() {
+		return declarations;
+	}
+
+	int reparsed() {
+		return reparsed;
+	}
+
+	// Parses [source], reusing and taking out the entries of [previous].
+	// The entries that were copied to another line are added to [moved],
+	// unless it's null.
+	private List<Stmt> process(String source, Map<String, Deque<Entry>> previous, List<Entry> moved) {
+		declarations = 0;
+		reparsed = 0;
+
+		Map<String, Deque<Entry>> current = new HashMap<>();
+		List<Stmt> statements = new ArrayList<>();
+		for (Splitter.Chunk chunk : Splitter.split(source)) {
+			// the whitespace before a declaration, where lines are
+			// usually added or removed, isn't part of its key
+			int start = 0;
+			int line = chunk.line;
+			while (start < chunk.text.length() && Character.isWhitespace(chunk.text.charAt(start))) {
+				if (chunk.text.charAt(start++) == '\n') ++line;
+			}
+			String key = chunk.text.substring(start);
+			if (key.isEmpty()) continue;
+
+			Deque<Entry> entries = previous.get(key);
+			Entry entry = entries == null ? null : entries.poll();
+			if (entries != null && entries.isEmpty()) previous.remove(key);
+
+			if (entry == null) {
+				entry = process(chunk, line);
+				++reparsed;
+			} else if (entry.line != line) {
+				if (moved != null) moved.add(entry);
+				entry = move(entry, line);
+			}
+
+			// declarations with errors aren't cached, so that
+			// their errors are reported again on the next update
+			if (entry.locals != null) {
+				current.computeIfAbsent(key, text -> new ArrayDeque<>()).add(entry);
+			}
+			statements.addAll(entry.statements);
+			++declarations;
+		}
+
+		for (Map.Entry<String, Deque<Entry>> entries : current.entrySet()) {
+			cache.computeIfAbsent(entries.getKey(), text -> new ArrayDeque<>()).addAll(entries.getValue());
+		}
+		return statements;
+	}
+
+	// [line] is the line the chunk starts at after its leading whitespace
+	private Entry process(Splitter.Chunk chunk, int line) {
+		boolean hadError = runtime.hadError;
+		runtime.hadError = false;
+
+		Scanner scanner = new Scanner(chunk.text, chunk.line, runtime);
+		List<Token> tokens = scanner.scanTokens();
+		Parser parser = new Parser(tokens, runtime);
+		List<Stmt> statements = parser.parse();
+
+		Map<Expr, Integer> resolved = null;
+		if (!runtime.hadError) {
+			resolved = new HashMap<>();
+			new Resolver(resolved, runtime).resolve(statements);
+		}
+
+		boolean failed = runtime.hadError;
+		runtime.hadError = hadError || failed;
+		if (failed) return new Entry(statements, null, line);
+
+		locals.putAll(resolved);
+		return new Entry(statements, resolved, line);
+	}
+
+	// Copies [entry] to [line]
+	private Entry move(Entry entry, int line) {
+		Map<Expr, Integer> resolved = new HashMap<>();
+		List<Stmt> statements = Relocator.move(entry.statements, line - entry.line, entry.locals, resolved);
+		locals.putAll(resolved);
+		return new Entry(statements, resolved, line);
+	}
+}
@@ -11,13 +11,17 @@ class Instance {
 		this.klass = klass;
 	}
 
-	Object get(Token name) {
+	// [interpreter] is the one looking the property up
+	Object get(Token name, Interpreter interpreter) {
 		if (fields.containsKey(name.lexeme)) {
 			return fields.get(name.lexeme);
 		}
 
 		Function method = klass.findMethod(this, name.lexeme);
-		if (method != null) return method;
+		if (method != null) {
+			interpreter.allocated(Allocation.BOUND_METHOD, 0);
+			return method;
+		}
 
 		throw new RuntimeError(name, "Undefined property '" + name.lexeme + "'");
 	}
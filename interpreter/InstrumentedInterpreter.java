@@ -0,0 +1,190 @@
+package com.interpreter;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// The interpreter of --hotlines: counts the executions of every statement
+// and samples the time spent in it, by the line it starts at, for a report
+// of the hottest lines at exit. Times are self times: the time of the
+// statements nested in a statement, or run by the functions it calls, goes
+// to their own lines, so recursion isn't counted twice and the times add up
+// to the total.
+//
+// Each statement gets a slot the first time it runs, which indexes a flat
+// array of counts owned by the interpreter of each thread. The slots are
+// kept in side tables rather than on the AST, which runtimes executing the
+// same CompiledProgram share.
+// Instead of reading the clock around every statement, a sampler thread
+// looks at the slot each interpreter is running every INTERVAL, and adds
+// the time since its last look to that slot.
+//
+// It's a subclass, which a runtime switches to before loading the script
+// (see QedRuntime.instrument), so that when it isn't used Interpreter.execute
+// has one implementation and pays nothing for it.
+class InstrumentedInterpreter extends Interpreter {
+	private static final long INTERVAL = 100000; // nanoseconds
+
+	// The slots and sampled times, shared by the interpreters of all
+	// threads of the runtime
+	private static class Slots {
+		// the statement of each slot, and the slot of each statement
+		private final List<Stmt> statements = new ArrayList<>();
+		private final Map<Stmt, Integer> slotOf = new IdentityHashMap<>();
+		private final List<InstrumentedInterpreter> interpreters = new ArrayList<>();
+		// nanoseconds of each slot, only written by the sampler
+		private long[] nanos = new long[64];
+		private final Thread sampler;
+		private volatile boolean running = true;
+
+		Slots() {
+			sampler = new Thread(this::sample, "qed-hotlines");
+			sampler.setDaemon(true);
+			sampler.start();
+		}
+
+		synchronized int assign(Stmt stmt) {
+			// another thread may have assigned it already
+			Integer slot = slotOf.get(stmt);
+			if (slot == null) {
+				slot = statements.size();
+				statements.add(stmt);
+				slotOf.put(stmt, slot);
+			}
+			return slot;
+		}
+
+		synchronized void register(InstrumentedInterpreter interpreter) {
+			interpreters.add(interpreter);
+		}
+
+		private void sample() {
+			List<InstrumentedInterpreter> current = new ArrayList<>();
+			long last = System.nanoTime();
+			while (running) {
+				LockSupport.parkNanos(INTERVAL);
+				long now = System.nanoTime();
+				long elapsed = now - last;
+				last = now;
+
+				current.clear();
+				synchronized (this) {
+					current.addAll(interpreters);
+				}
+
+				for (InstrumentedInterpreter interpreter : current) {
+					int slot = interpreter.current.get();
+					if (slot < 0) continue;
+					if (slot >= nanos.length) {
+						nanos = Arrays.copyOf(nanos, Math.max(slot + 1, nanos.length * 2));
+					}
+					nanos[slot] += elapsed;
+				}
+			}
+		}
+
+		void stop() {
+			running = false;
+			try {
+				sampler.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private final Slots slots;
+	// the slots this interpreter has looked up, so it doesn't lock [slots]
+	private final Map<Stmt, Integer> known = new IdentityHashMap<>();
+	// the executions of each slot on this interpreter's thread
+	private long[] counts = new long[64];
+	// the slot of the statement running, -1 outside of any, read by the sampler
+	private final AtomicInteger current = new AtomicInteger(-1);
+
+	InstrumentedInterpreter(QedRuntime runtime, Map<Expr, Integer> locals) {
+		super(runtime, locals);
+		this.slots = new Slots();
+		slots.register(this);
+	}
+
+	private InstrumentedInterpreter(InstrumentedInterpreter parent) {
+		super(parent);
+		this.slots = parent.slots;
+		slots.register(this);
+	}
+
+	@Override
+	Interpreter child() {
+		return new InstrumentedInterpreter(this);
+	}
+
+	@Override
+	void execute(Stmt stmt) {
+		// a block is counted by its statements
+		if (stmt instanceof Stmt.Block) {
+			super.execute(stmt);
+			return;
+		}
+
+		Integer cached = known.get(stmt);
+		int slot;
+		if (cached != null) {
+			slot = cached;
+		} else {
+			slot = slots.assign(stmt);
+			known.put(stmt, slot);
+		}
+		if (slot >= counts.length) {
+			counts = Arrays.copyOf(counts, Math.max(slot + 1, counts.length * 2));
+		}
+		++counts[slot];
+
+		int outer = current.get();
+		// only this thread writes it, and the sampler can see it late
+		current.lazySet(slot);
+		try {
+			super.execute(stmt);
+		} finally {
+			current.lazySet(outer);
+		}
+	}
+
+	// Stops sampling and prints the [top] lines with the most time,
+	// with their text from [source]
+	void report(String source, int top, PrintStream out) {
+		slots.stop();
+
+		// count and nanoseconds by line
+		Map<Integer, long[]> lines = new HashMap<>();
+		synchronized (slots) {
+			for (int slot = 0; slot < slots.statements.size(); ++slot) {
+				long[] line = lines.computeIfAbsent(Lines.of(slots.statements.get(slot)), l -> new long[2]);
+				for (InstrumentedInterpreter interpreter : slots.interpreters) {
+					if (slot < interpreter.counts.length) line[0] += interpreter.counts[slot];
+				}
+				if (slot < slots.nanos.length) line[1] += slots.nanos[slot];
+			}
+		}
+
+		String[] text = source.split("\n", -1);
+		List<Map.Entry<Integer, long[]>> hottest = new ArrayList<>(lines.entrySet());
+		hottest.sort((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]));
+
+		out.printf("%6s %12s %12s %10s  %s%n", "line", "count", "self ms", "avg ns", "source");
+		for (Map.Entry<Integer, long[]> entry : hottest.subList(0, Math.min(top, hottest.size()))) {
+			int number = entry.getKey();
+			long count = entry.getValue()[0];
+			long nanos = entry.getValue()[1];
+			String line = number > 0 && number <= text.length
+				? text[number - 1].trim() : "?";
+			out.printf("%6d %12d %12.3f %10d  %s%n", number, count,
+				nanos / 1e6, count == 0 ? 0 : nanos / count, line);
+		}
+	}
+}
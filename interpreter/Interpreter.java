@@ -13,26 +13,112 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 	private static class BreakException extends RuntimeException {}
 	private static class ContinueException extends RuntimeException {}
 
-	Environment globals = new Environment();
-	private final Map<Expr, Integer> locals = new HashMap<>();
-	private Environment environment = globals;
+	final QedRuntime runtime;
+	final Environment globals;
+	// resolved scope distance of each local variable expression
+	final Map<Expr, Integer> locals;
+	private Environment environment;
+	// loop iterations and calls left before the scheduler is checked
+	private int fuel = 0;
+	// the calls in progress, kept while the runtime is profiled
+	ShadowStack stack;
+	// statements and calls not yet added to Metrics, see count()
+	private static final int BATCH = 1024;
+	private int statements = 0;
+	private int calls = 0;
+	private int depth = 0;
+	private int deepest = 0;
+
+	Interpreter(QedRuntime runtime, Map<Expr, Integer> locals) {
+		this.runtime = runtime;
+		this.locals = locals;
+		this.globals = new Environment();
+		this.environment = globals;
+		Builtins.define(globals);
+	}
+
+	// An interpreter for another thread of the same program. It shares the
+	// globals and the program, but has its own environment pointer, since
+	// that's the part of the state that tracks where execution is.
+	Interpreter(Interpreter parent) {
+		this.runtime = parent.runtime;
+		this.locals = parent.locals;
+		this.globals = parent.globals;
+		this.environment = globals;
+		if (runtime.profiler != null) this.stack = runtime.profiler.register();
+	}
+
+	// Called where objects are allocated for the running script, with
+	// the number of their variables or elements. It's a hook for
+	// AllocationInterpreter, and does nothing here.
+	void allocated(Allocation kind, int size) {
+	}
+
+	// Adds the statements and calls of the interpreter to Metrics, which is
+	// done in batches, when a call returns to the top of the thread and when
+	// the script ends, to keep the shared counters out of the hot paths
+	private void count() {
+		Metrics.metrics.statements.add(statements);
+		Metrics.metrics.calls.add(calls);
+		statements = 0;
+		calls = 0;
+	}
+
+	// Called by Function around a call
+	void called() {
+		if (++calls == BATCH) count();
+		if (++depth > deepest) {
+			deepest = depth;
+			Metrics.metrics.maxCallDepth.accumulate(depth);
+		}
+	}
+
+	void returned() {
+		// the work of child interpreters ends with their calls
+		if (--depth == 0) count();
+	}
+
+	// An interpreter for a new thread of the program, see above
+	Interpreter child() {
+		return new Interpreter(this);
+	}
+
+	// Forgets the globals of previous runs, so the interpreter can be reused
+	void reset() {
+		globals.clear();
+		Builtins.define(globals);
+		environment = globals;
+		fuel = 0;
+	}
 
 	public void interpret(List<Stmt> statements) {
+		runtime.loop.enter();
+		if (stack != null) stack.push("<script>");
+		long start = System.nanoTime();
 		try {
 			for (Stmt statement : statements) {
 				execute(statement);
 			}
+			runtime.loop.drain();
 		} catch(RuntimeError error) {
-			QED.runtimeError(error);
+			runtime.runtimeError(error);
+		} finally {
+			Metrics.metrics.execute.add(System.nanoTime() - start);
+			count();
+			if (stack != null) stack.pop();
+			runtime.loop.leave();
 		}
 	}
 
-	private void execute(Stmt stmt) {
-		stmt.accept(this);
+	// Counts a loop iteration or a call, the safe points where a script
+	// running on a Scheduler gives way to others once its quantum is used up
+	private void tick() {
+		if (--fuel <= 0) fuel = runtime.yield();
 	}
 
-	void resolve(Expr expr, int depth) {
-		locals.put(expr, depth);
+	void execute(Stmt stmt) {
+		if (++statements == BATCH) count();
+		stmt.accept(this);
 	}
 
 	private Object evaluate(Expr expr) {
@@ -41,6 +127,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 	@Override
 	public Void visitBlockStmt(Stmt.Block stmt) {
+		allocated(Allocation.ENVIRONMENT, 0);
 		executeBlock(stmt.statements, new Environment(environment));
 		return null;
 	}
@@ -87,13 +174,14 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 		environment = previousEnv;
 
-		Class klass = new Class(stmt.name.lexeme, (Class)superclass, methods);
+		Class klass = new Class(stmt.name.lexeme, stmt.name.line, (Class)superclass, methods);
 		environment.assign(stmt.name, klass);
 		return null;
 	}
 
 	@Override
 	public Void visitFunctionStmt(Stmt.Function stmt) {
+		allocated(Allocation.CLOSURE, 0);
 		environment.define(stmt.name.lexeme, new Function(stmt, environment, false));
 		return null;
 	}
@@ -109,8 +197,12 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 	@Override
 	public Void visitWhileStmt(Stmt.While stmt) {
+		TraceRecorder trace = runtime.trace;
+		int line = trace == null ? 0 : trace.line(stmt);
 		try {
 			while(isTruthy(evaluate(stmt.condition))) {
+				tick();
+				if (trace != null) trace.iteration(line);
 				try {
 					execute(stmt.body);
 				} catch (ContinueException ex) {
@@ -129,8 +221,12 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 			execute(stmt.initializer);
 		}
 
+		TraceRecorder trace = runtime.trace;
+		int line = trace == null ? 0 : trace.line(stmt);
 		try {
 			while(isTruthy(evaluate(stmt.condition))) {
+				tick();
+				if (trace != null) trace.iteration(line);
 				try {
 					execute(stmt.body);
 				} catch (ContinueException ex) {
@@ -164,11 +260,14 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 	@Override
 	public Void visitPrintStmt(Stmt.Print stmt) {
+		// the line is printed in one go, so that lines printed
+		// by concurrent tasks don't get mixed up
+		StringBuilder line = new StringBuilder();
 		for (Expr expr : stmt.expressions) {
 			Object val = evaluate(expr);
-			System.out.print(stringify(val) + " ");
+			line.append(stringify(val)).append(" ");
 		}
-		System.out.println();
+		runtime.out.println(line);
 		return null;
 	}
 
@@ -304,6 +403,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 	public Object visitCallExpr(Expr.Call expr) {
 		Object callee = evaluate(expr.callee);
 		
+		allocated(Allocation.ARGUMENTS, expr.arguments.size());
 		List<Object> args = new ArrayList<>();
 		for (Expr arg : expr.arguments) {
 			args.add(evaluate(arg));
@@ -321,14 +421,29 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 			);
 		}
 
-		return function.call(this, args);
+		tick();
+		try {
+			return function.call(this, args);
+		} catch (NativeError error) {
+			throw new RuntimeError(expr.paren, error.getMessage());
+		}
+	}
+
+	@Override
+	public Object visitAwaitExpr(Expr.Await expr) {
+		Object value = evaluate(expr.value);
+		try {
+			return runtime.loop.await(value);
+		} catch (NativeError error) {
+			throw new RuntimeError(expr.keyword, error.getMessage());
+		}
 	}
 
 	@Override
 	public Object visitGetExpr(Expr.Get expr) {
 		Object instance = evaluate(expr.object);
 		if (instance instanceof Instance) {
-			return ((Instance) instance).get(expr.name);
+			return ((Instance) instance).get(expr.name, this);
 		} else {
 			throw new RuntimeError(expr.name, "Only instances have properties");
 		}
@@ -382,6 +497,8 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 
 	@Override
 	public Object visitArrayExpr(Expr.Array expr) {
+		allocated(Allocation.ARRAY, expr.values.size());
+		Metrics.metrics.arrays.increment();
 		List<Object> array = new ArrayList<>();
 		for (Expr value : expr.values) {
 			array.add(evaluate(value));
@@ -432,6 +549,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 		if (method == null) {
 			throw new RuntimeError(expr.method, "Undefined property '" + expr.method.lexeme + "'");
 		}
+		allocated(Allocation.BOUND_METHOD, 0);
 		return method;
 	}
 
@@ -444,7 +562,7 @@ class Interpreter implements Expr.Visitor<Object>, Stmt.Visitor<Void> {
 		}
 	}
 
-	private boolean isTruthy(Object test) {
+	boolean isTruthy(Object test) {
 		if (test == null) return false;
 		if (test instanceof Boolean) return (boolean)test;
 
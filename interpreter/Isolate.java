@@ -0,0 +1,106 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// A script running in parallel with its own runtime, started by
+// isolate(source). Unlike a task, it shares nothing with the script that
+// started it: it has its own globals, and the only values that cross
+// between the two are the messages sent through the Port returned by
+// isolate(), which are deep copied. So isolates need no synchronization on
+// their instances and arrays, and their own code runs as fast as a script.
+//
+// The isolate reaches its port through the global 'parent'. When its
+// script ends the port is closed, and its errors go to the err stream of
+// the runtime that started it, which then fails like on its own errors.
+// It takes turns on the scheduler of that runtime, if it has one.
+class Isolate {
+	// compiled sources kept by each runtime, see programs()
+	private static final int PROGRAMS = 32;
+
+	// The compiled programs of a runtime by source, so that sources are
+	// compiled once however many isolates run them. The least recently
+	// started ones are dropped beyond PROGRAMS sources.
+	static Map<String, CompiledProgram> programs() {
+		return new LinkedHashMap<String, CompiledProgram>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledProgram> eldest) {
+				return size() > PROGRAMS;
+			}
+		};
+	}
+
+	static Port start(QedRuntime parent, String source) {
+		final CompiledProgram compiled = compile(parent, source);
+		final QedRuntime runtime = compiled.runtime(parent.out, parent.err);
+		runtime.script = "<isolate>";
+		runtime.scheduler = parent.scheduler;
+		final Port port = new Port();
+		runtime.interpreter.globals.define("parent", port.other());
+
+		Task.executor.execute(() -> {
+			try {
+				runtime.scheduled(() -> {
+					compiled.run(runtime);
+					return null;
+				});
+			} finally {
+				if (runtime.hadRuntimeError) parent.hadRuntimeError = true;
+				port.other().close();
+			}
+		});
+		return port;
+	}
+
+	private static CompiledProgram compile(QedRuntime parent, String source) {
+		synchronized (parent.isolates) {
+			CompiledProgram program = parent.isolates.get(source);
+			if (program != null) return program;
+		}
+
+		CompiledProgram program;
+		try {
+			program = CompiledProgram.compile(source);
+		} catch (QedException ex) {
+			throw new NativeError("Can't start an isolate:\n" + ex.getMessage());
+		}
+
+		synchronized (parent.isolates) {
+			parent.isolates.putIfAbsent(source, program);
+		}
+		return program;
+	}
+
+	// A copy of [value] that shares no mutable objects with it. Arrays are
+	// copied element by element, keeping shared elements and cycles as they
+	// are. Ports can be sent as they are, to connect isolates, but instances,
+	// functions, classes and channels belong to the isolate they were made in.
+	static Object copy(Object value) {
+		return copy(value, new IdentityHashMap<>());
+	}
+
+	private static Object copy(Object value, Map<Object, Object> copies) {
+		if (value == null || value instanceof Double || value instanceof String
+				|| value instanceof Boolean || value instanceof Port) {
+			return value;
+		}
+
+		if (value instanceof ArrayList) {
+			Object copied = copies.get(value);
+			if (copied != null) return copied;
+
+			List<?> array = (List<?>)value;
+			List<Object> copy = new ArrayList<>(array.size());
+			copies.put(value, copy);
+			for (Object element : array) {
+				copy.add(copy(element, copies));
+			}
+			return copy;
+		}
+
+		throw new NativeError("Can't send " + value + " to another isolate");
+	}
+}
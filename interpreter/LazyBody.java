@@ -0,0 +1,95 @@
+package com.interpreter;
+
+import java.util.List;
+
+// The body of a function declared in lazy mode. The parser only records
+// the token range of the body; parsing and resolving it is delayed until
+// the first call of the function. Functions decoded from a CompactAst
+// have their body decoded on the first call in the same way.
+class LazyBody {
+	private final List<Token> tokens;
+	private final int start;
+	private final int end;
+	private final int loopDepth;
+
+	// set instead of the tokens for a body in a CompactAst, and dropped
+	// once the body is decoded, so that the arrays of a program can be
+	// collected when all of its bodies have been decoded
+	private CompactAst ast;
+	private final int node;
+
+	// A copy of the resolver at the function declaration and the kind
+	// of the function, set when the resolver reaches the declaration
+	private Resolver resolver;
+	private Resolver.FunctionType type;
+
+	private boolean parsed = false;
+	private boolean failed = false;
+	private volatile boolean materialized = false;
+
+	LazyBody(List<Token> tokens, int start, int end, int loopDepth) {
+		this.tokens = tokens;
+		this.start = start;
+		this.end = end;
+		this.loopDepth = loopDepth;
+		this.ast = null;
+		this.node = -1;
+	}
+
+	LazyBody(CompactAst ast, int node) {
+		this.tokens = null;
+		this.start = 0;
+		this.end = 0;
+		this.loopDepth = 0;
+		this.ast = ast;
+		this.node = node;
+	}
+
+	boolean isParsed() {
+		return parsed;
+	}
+
+	void defer(Resolver resolver, Resolver.FunctionType type) {
+		this.resolver = resolver;
+		this.type = type;
+	}
+
+	// Parses and resolves the body into [function]. Errors are reported
+	// like any other syntax error, and the call is aborted with a runtime error
+	void materialize(Stmt.Function function) {
+		if (!materialized) {
+			synchronized (this) {
+				if (!materialized) parse(function);
+			}
+		}
+
+		if (failed) {
+			throw new RuntimeError(function.name,
+				"Function '" + function.name.lexeme + "' has errors in its body");
+		}
+	}
+
+	// Errors are counted by the parser and the resolver of this body, so that
+	// bodies materialized on different threads don't share an error flag
+	private void parse(Stmt.Function function) {
+		List<Stmt> body;
+		if (ast != null) {
+			body = ast.functionBody(node);
+			ast = null;
+		} else {
+			Parser parser = new Parser(tokens, start, end, loopDepth, true, resolver.runtime);
+			body = parser.parse();
+			failed = parser.errors > 0;
+		}
+
+		if (!failed) {
+			function.body.addAll(body);
+			// must be set before resolving, otherwise the resolver defers again
+			parsed = true;
+			resolver.resolveFunction(function, type);
+			failed = resolver.errors > 0;
+		}
+
+		materialized = true;
+	}
+}
@@ -0,0 +1,177 @@
+package com.interpreter;
+
+// Finds the line a statement starts at, from the first token within it
+// that carries one. Returns 0 for nodes without tokens, like 'break' or a
+// print of literals.
+class Lines implements Expr.Visitor<Integer>, Stmt.Visitor<Integer> {
+	private static final Lines lines = new Lines();
+
+	static int of(Stmt stmt) {
+		return stmt == null ? 0 : stmt.accept(lines);
+	}
+
+	private static int of(Expr expr) {
+		return expr == null ? 0 : expr.accept(lines);
+	}
+
+	// The first of [lines] that's known
+	private static int first(int... lines) {
+		for (int line : lines) {
+			if (line != 0) return line;
+		}
+		return 0;
+	}
+
+	@Override
+	public Integer visitBlockStmt(Stmt.Block stmt) {
+		return stmt.statements.isEmpty() ? 0 : of(stmt.statements.get(0));
+	}
+
+	@Override
+	public Integer visitExpressionStmt(Stmt.Expression stmt) {
+		return of(stmt.expression);
+	}
+
+	@Override
+	public Integer visitFunctionStmt(Stmt.Function stmt) {
+		return stmt.name.line;
+	}
+
+	@Override
+	public Integer visitClassStmt(Stmt.Class stmt) {
+		return stmt.name.line;
+	}
+
+	@Override
+	public Integer visitIfStmt(Stmt.If stmt) {
+		return of(stmt.condition);
+	}
+
+	@Override
+	public Integer visitWhileStmt(Stmt.While stmt) {
+		return first(of(stmt.condition), of(stmt.body));
+	}
+
+	@Override
+	public Integer visitForStmt(Stmt.For stmt) {
+		return first(of(stmt.initializer), of(stmt.condition), of(stmt.increment), of(stmt.body));
+	}
+
+	@Override
+	public Integer visitBreakStmt(Stmt.Break stmt) {
+		return 0;
+	}
+
+	@Override
+	public Integer visitContinueStmt(Stmt.Continue stmt) {
+		return 0;
+	}
+
+	@Override
+	public Integer visitPrintStmt(Stmt.Print stmt) {
+		for (Expr expr : stmt.expressions) {
+			int line = of(expr);
+			if (line != 0) return line;
+		}
+		return 0;
+	}
+
+	@Override
+	public Integer visitReturnStmt(Stmt.Return stmt) {
+		return stmt.keyword.line;
+	}
+
+	@Override
+	public Integer visitVarStmt(Stmt.Var stmt) {
+		return stmt.name.line;
+	}
+
+	@Override
+	public Integer visitArrayExpr(Expr.Array expr) {
+		for (Expr value : expr.values) {
+			int line = of(value);
+			if (line != 0) return line;
+		}
+		return 0;
+	}
+
+	@Override
+	public Integer visitAssignExpr(Expr.Assign expr) {
+		return expr.name.line;
+	}
+
+	@Override
+	public Integer visitBinaryExpr(Expr.Binary expr) {
+		return first(of(expr.left), expr.operator.line);
+	}
+
+	@Override
+	public Integer visitCallExpr(Expr.Call expr) {
+		return first(of(expr.callee), expr.paren.line);
+	}
+
+	@Override
+	public Integer visitGetExpr(Expr.Get expr) {
+		return first(of(expr.object), expr.name.line);
+	}
+
+	@Override
+	public Integer visitSetExpr(Expr.Set expr) {
+		return first(of(expr.object), expr.name.line);
+	}
+
+	@Override
+	public Integer visitArrayGetExpr(Expr.ArrayGet expr) {
+		return first(of(expr.array), expr.bracket.line);
+	}
+
+	@Override
+	public Integer visitArraySetExpr(Expr.ArraySet expr) {
+		return first(of(expr.array), expr.bracket.line);
+	}
+
+	@Override
+	public Integer visitThisExpr(Expr.This expr) {
+		return expr.keyword.line;
+	}
+
+	@Override
+	public Integer visitSuperExpr(Expr.Super expr) {
+		return expr.keyword.line;
+	}
+
+	@Override
+	public Integer visitLogicalExpr(Expr.Logical expr) {
+		return first(of(expr.left), expr.operator.line);
+	}
+
+	@Override
+	public Integer visitGroupingExpr(Expr.Grouping expr) {
+		return of(expr.expression);
+	}
+
+	@Override
+	public Integer visitLiteralExpr(Expr.Literal expr) {
+		return 0;
+	}
+
+	@Override
+	public Integer visitUnaryExpr(Expr.Unary expr) {
+		return expr.operator.line;
+	}
+
+	@Override
+	public Integer visitTernaryExpr(Expr.Ternary expr) {
+		return first(of(expr.condition), of(expr.onTrue), of(expr.onFalse));
+	}
+
+	@Override
+	public Integer visitAwaitExpr(Expr.Await expr) {
+		return expr.keyword.line;
+	}
+
+	@Override
+	public Integer visitVariableExpr(Expr.Variable expr) {
+		return expr.name.line;
+	}
+}
@@ -0,0 +1,111 @@
+package com.interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Live counters of the scripts run by the JVM, for embedders and the
+// --server mode, as the com.interpreter:type=Metrics MBean.
+//
+// The counters are LongAdders, so the threads of many scripts don't contend
+// on them. Statements and calls, which are counted the most, are added in
+// batches by each interpreter (see Interpreter.count), so those counters
+// may lag behind by a batch per running thread.
+//
+// The counters are always kept. register() makes them visible over JMX;
+// it isn't done up front because starting the platform MBean server takes
+// longer than running most scripts.
+public final class Metrics implements MetricsMBean {
+	static final Metrics metrics = new Metrics();
+	private static final String NAME = "com.interpreter:type=Metrics";
+
+	final LongAdder statements = new LongAdder();
+	final LongAdder calls = new LongAdder();
+	final LongAccumulator maxCallDepth = new LongAccumulator(Math::max, 0);
+	final LongAdder instances = new LongAdder();
+	final LongAdder arrays = new LongAdder();
+	final LongAdder runtimeErrors = new LongAdder();
+
+	// nanoseconds spent in each phase
+	final LongAdder scan = new LongAdder();
+	final LongAdder parse = new LongAdder();
+	final LongAdder scanAndParse = new LongAdder();
+	final LongAdder resolve = new LongAdder();
+	final LongAdder execute = new LongAdder();
+
+	private Metrics() {
+	}
+
+	// Registers the counters with the platform MBean server, once
+	public static synchronized void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(NAME);
+			if (!server.isRegistered(name)) server.registerMBean(metrics, name);
+		} catch (JMException ex) {
+			throw new IllegalStateException("Can't register " + NAME, ex);
+		}
+	}
+
+	@Override
+	public long getStatements() {
+		return statements.sum();
+	}
+
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+
+	@Override
+	public long getMaxCallDepth() {
+		return maxCallDepth.get();
+	}
+
+	@Override
+	public long getInstances() {
+		return instances.sum();
+	}
+
+	@Override
+	public long getArrays() {
+		return arrays.sum();
+	}
+
+	@Override
+	public long getRuntimeErrors() {
+		return runtimeErrors.sum();
+	}
+
+	@Override
+	public double getScanMillis() {
+		return millis(scan);
+	}
+
+	@Override
+	public double getParseMillis() {
+		return millis(parse);
+	}
+
+	@Override
+	public double getScanAndParseMillis() {
+		return millis(scanAndParse);
+	}
+
+	@Override
+	public double getResolveMillis() {
+		return millis(resolve);
+	}
+
+	@Override
+	public double getExecuteMillis() {
+		return millis(execute);
+	}
+
+	private static double millis(LongAdder nanos) {
+		return nanos.sum() / 1e6;
+	}
+}
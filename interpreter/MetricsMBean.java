@@ -0,0 +1,30 @@
+package com.interpreter;
+
+// The counters of Metrics, as JMX shows them. They add up all the scripts
+// run by the JVM since it started.
+public interface MetricsMBean {
+	long getStatements();
+
+	long getCalls();
+
+	// the deepest any thread of QED code has called
+	long getMaxCallDepth();
+
+	long getInstances();
+
+	long getArrays();
+
+	long getRuntimeErrors();
+
+	double getScanMillis();
+
+	double getParseMillis();
+
+	// with --parallel, the scanning and parsing of the fragments
+	double getScanAndParseMillis();
+
+	double getResolveMillis();
+
+	// the time in the top level code of scripts, including the calls it made
+	double getExecuteMillis();
+}
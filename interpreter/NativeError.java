@@ -0,0 +1,9 @@
+package com.interpreter;
+
+// Thrown by native functions, which don't have a token to report.
+// The interpreter turns it into a RuntimeError at the call.
+class NativeError extends RuntimeException {
+	NativeError(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,22 @@
+package com.interpreter;
+
+// A function implemented in Java, see Builtins
+abstract class NativeFunction implements Callable {
+	private final String name;
+	private final int arity;
+
+	NativeFunction(String name, int arity) {
+		this.name = name;
+		this.arity = arity;
+	}
+
+	@Override
+	public int arity() {
+		return arity;
+	}
+
+	@Override
+	public String toString() {
+		return "<native fun " + name + ">";
+	}
+}
@@ -0,0 +1,227 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Counts the nodes of a program by their type, for --stats. The bodies of
+// functions that a lazy parse skipped aren't counted.
+class NodeCounter implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
+	private final Map<String, Integer> counts = new TreeMap<>();
+
+	static Map<String, Integer> count(List<Stmt> statements) {
+		NodeCounter counter = new NodeCounter();
+		counter.statements(statements);
+		return counter.counts;
+	}
+
+	private void statements(List<Stmt> statements) {
+		for (Stmt stmt : statements) {
+			count(stmt);
+		}
+	}
+
+	private void expressions(List<? extends Expr> expressions) {
+		for (Expr expr : expressions) {
+			count(expr);
+		}
+	}
+
+	private void count(Stmt stmt) {
+		if (stmt == null) return;
+		counts.merge(stmt.getClass().getSimpleName() + "Stmt", 1, Integer::sum);
+		stmt.accept(this);
+	}
+
+	private void count(Expr expr) {
+		if (expr == null) return;
+		counts.merge(expr.getClass().getSimpleName() + "Expr", 1, Integer::sum);
+		expr.accept(this);
+	}
+
+	@Override
+	public Void visitBlockStmt(Stmt.Block stmt) {
+		statements(stmt.statements);
+		return null;
+	}
+
+	@Override
+	public Void visitExpressionStmt(Stmt.Expression stmt) {
+		count(stmt.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitFunctionStmt(Stmt.Function stmt) {
+		if (stmt.body != null) statements(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Void visitClassStmt(Stmt.Class stmt) {
+		count(stmt.superclass);
+		for (Stmt.Function method : stmt.methods) {
+			count(method);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitIfStmt(Stmt.If stmt) {
+		count(stmt.condition);
+		count(stmt.thenBranch);
+		count(stmt.elseBranch);
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStmt(Stmt.While stmt) {
+		count(stmt.condition);
+		count(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Void visitForStmt(Stmt.For stmt) {
+		count(stmt.initializer);
+		count(stmt.condition);
+		count(stmt.increment);
+		count(stmt.body);
+		return null;
+	}
+
+	@Override
+	public Void visitBreakStmt(Stmt.Break stmt) {
+		return null;
+	}
+
+	@Override
+	public Void visitContinueStmt(Stmt.Continue stmt) {
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStmt(Stmt.Print stmt) {
+		expressions(stmt.expressions);
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStmt(Stmt.Return stmt) {
+		count(stmt.value);
+		return null;
+	}
+
+	@Override
+	public Void visitVarStmt(Stmt.Var stmt) {
+		count(stmt.initializer);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayExpr(Expr.Array expr) {
+		expressions(expr.values);
+		return null;
+	}
+
+	@Override
+	public Void visitAssignExpr(Expr.Assign expr) {
+		count(expr.value);
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryExpr(Expr.Binary expr) {
+		count(expr.left);
+		count(expr.right);
+		return null;
+	}
+
+	@Override
+	public Void visitCallExpr(Expr.Call expr) {
+		count(expr.callee);
+		expressions(expr.arguments);
+		return null;
+	}
+
+	@Override
+	public Void visitGetExpr(Expr.Get expr) {
+		count(expr.object);
+		return null;
+	}
+
+	@Override
+	public Void visitSetExpr(Expr.Set expr) {
+		count(expr.object);
+		count(expr.value);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayGetExpr(Expr.ArrayGet expr) {
+		count(expr.array);
+		count(expr.index);
+		return null;
+	}
+
+	@Override
+	public Void visitArraySetExpr(Expr.ArraySet expr) {
+		count(expr.array);
+		count(expr.index);
+		count(expr.value);
+		return null;
+	}
+
+	@Override
+	public Void visitThisExpr(Expr.This expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitSuperExpr(Expr.Super expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitLogicalExpr(Expr.Logical expr) {
+		count(expr.left);
+		count(expr.right);
+		return null;
+	}
+
+	@Override
+	public Void visitGroupingExpr(Expr.Grouping expr) {
+		count(expr.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralExpr(Expr.Literal expr) {
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryExpr(Expr.Unary expr) {
+		count(expr.right);
+		return null;
+	}
+
+	@Override
+	public Void visitTernaryExpr(Expr.Ternary expr) {
+		count(expr.condition);
+		count(expr.onTrue);
+		count(expr.onFalse);
+		return null;
+	}
+
+	@Override
+	public Void visitAwaitExpr(Expr.Await expr) {
+		count(expr.value);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableExpr(Expr.Variable expr) {
+		return null;
+	}
+}
@@ -0,0 +1,176 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+
+// pmap, pfilter and preduce: array functions that call a QED function on
+// the elements in parallel. The array is split in halves on the ForkJoinPool
+// of the calling thread (the common pool, unless the caller is a worker of
+// another pool) until a range is below THRESHOLD elements, and each range is
+// processed by its own Interpreter, like a task. The same rules as for tasks
+// apply to what the function may share.
+//
+// Each range runs with a permit of the scheduler, if the runtime has one,
+// like a task, and the calling thread gives its permit up while it waits.
+class ParallelArray {
+	// elements below which a range isn't split further; a call to a QED
+	// function costs around a microsecond, about the cost of forking
+	static final int THRESHOLD = 256;
+
+	// [function] applied to every element, in order
+	static List<Object> map(Interpreter interpreter, List<Object> array, Callable function) {
+		return invoke(interpreter, new MapTask(interpreter, array, function, 0, array.size()));
+	}
+
+	// The elements for which [function] returns a truthy value, in order
+	static List<Object> filter(Interpreter interpreter, List<Object> array, Callable function) {
+		return invoke(interpreter, new FilterTask(interpreter, array, function, 0, array.size()));
+	}
+
+	// Combines the elements with [function], which has to be associative,
+	// as ranges are reduced separately and then combined with each other.
+	// Only the first range starts from [initial], the others start from
+	// their first element, so [initial] is combined exactly once.
+	static Object reduce(Interpreter interpreter, List<Object> array, Callable function, Object initial) {
+		return invoke(interpreter, new ReduceTask(interpreter, array, function, initial, 0, array.size()));
+	}
+
+	private static <T> T invoke(Interpreter interpreter, RecursiveTask<T> task) {
+		Scheduler scheduler = interpreter.runtime.scheduler;
+		boolean scheduled = scheduler != null && scheduler.leave();
+		try {
+			return task.invoke();
+		} finally {
+			if (scheduled) scheduler.enter();
+		}
+	}
+
+	private static Object call(Interpreter interpreter, Callable function, Object... arguments) {
+		List<Object> list = new ArrayList<>(arguments.length);
+		for (Object argument : arguments) {
+			list.add(argument);
+		}
+		return function.call(interpreter, list);
+	}
+
+	private static class MapTask extends RecursiveTask<List<Object>> {
+		private final Interpreter parent;
+		private final List<Object> array;
+		private final Callable function;
+		private final int from;
+		private final int to;
+
+		MapTask(Interpreter parent, List<Object> array, Callable function, int from, int to) {
+			this.parent = parent;
+			this.array = array;
+			this.function = function;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Object> compute() {
+			if (to - from <= THRESHOLD) {
+				return parent.runtime.scheduled(() -> {
+					Interpreter interpreter = parent.child();
+					List<Object> result = new ArrayList<>(to - from);
+					for (int i = from; i < to; ++i) {
+						result.add(call(interpreter, function, array.get(i)));
+					}
+					return result;
+				});
+			}
+
+			int middle = (from + to) >>> 1;
+			MapTask left = new MapTask(parent, array, function, from, middle);
+			left.fork();
+			List<Object> right = new MapTask(parent, array, function, middle, to).compute();
+			List<Object> result = left.join();
+			result.addAll(right);
+			return result;
+		}
+	}
+
+	private static class FilterTask extends RecursiveTask<List<Object>> {
+		private final Interpreter parent;
+		private final List<Object> array;
+		private final Callable function;
+		private final int from;
+		private final int to;
+
+		FilterTask(Interpreter parent, List<Object> array, Callable function, int from, int to) {
+			this.parent = parent;
+			this.array = array;
+			this.function = function;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Object> compute() {
+			if (to - from <= THRESHOLD) {
+				return parent.runtime.scheduled(() -> {
+					Interpreter interpreter = parent.child();
+					List<Object> result = new ArrayList<>();
+					for (int i = from; i < to; ++i) {
+						Object element = array.get(i);
+						if (interpreter.isTruthy(call(interpreter, function, element))) {
+							result.add(element);
+						}
+					}
+					return result;
+				});
+			}
+
+			int middle = (from + to) >>> 1;
+			FilterTask left = new FilterTask(parent, array, function, from, middle);
+			left.fork();
+			List<Object> right = new FilterTask(parent, array, function, middle, to).compute();
+			List<Object> result = left.join();
+			result.addAll(right);
+			return result;
+		}
+	}
+
+	private static class ReduceTask extends RecursiveTask<Object> {
+		private final Interpreter parent;
+		private final List<Object> array;
+		private final Callable function;
+		private final Object initial;
+		private final int from;
+		private final int to;
+
+		ReduceTask(Interpreter parent, List<Object> array, Callable function, Object initial, int from, int to) {
+			this.parent = parent;
+			this.array = array;
+			this.function = function;
+			this.initial = initial;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Object compute() {
+			if (to - from <= THRESHOLD) {
+				return parent.runtime.scheduled(() -> {
+					Interpreter interpreter = parent.child();
+					// ranges after the first are never empty
+					int start = from == 0 ? from : from + 1;
+					Object result = from == 0 ? initial : array.get(from);
+					for (int i = start; i < to; ++i) {
+						result = call(interpreter, function, result, array.get(i));
+					}
+					return result;
+				});
+			}
+
+			int middle = (from + to) >>> 1;
+			ReduceTask left = new ReduceTask(parent, array, function, initial, from, middle);
+			left.fork();
+			Object right = new ReduceTask(parent, array, function, initial, middle, to).compute();
+			Object result = left.join();
+			return parent.runtime.scheduled(() -> call(parent.child(), function, result, right));
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+// Scans, parses and resolves a large script on the common ForkJoinPool.
+// The source is split at its top level declarations (see Splitter), and
+// runs of consecutive declarations are scanned and parsed as independent
+// fragments, starting at their own line so line numbers stay correct.
+//
+// Top level declarations are resolved in the global scope, which the
+// resolver doesn't track, so they can be resolved independently as well.
+// Errors are reported as they're found, so their order may vary.
+class ParallelFrontEnd {
+	// source characters and statements below which a task isn't split further
+	private static final int PARSE_THRESHOLD = 16 * 1024;
+	private static final int RESOLVE_THRESHOLD = 64;
+
+	private final QedRuntime runtime;
+	private final boolean lazy;
+
+	ParallelFrontEnd(QedRuntime runtime, boolean lazy) {
+		this.runtime = runtime;
+		this.lazy = lazy;
+	}
+
+	List<Stmt> parse(String source) {
+		List<Splitter.Chunk> chunks = Splitter.split(source);
+		return new ParseTask(chunks, 0, chunks.size()).invoke();
+	}
+
+	// Resolves into [locals], which has to be concurrent: the tasks write
+	// into it directly, and so do lazy and compact function bodies, which
+	// are resolved on their first call by the resolver that reached them
+	void resolve(List<Stmt> statements, Map<Expr, Integer> locals) {
+		new ResolveTask(statements, locals, 0, statements.size()).invoke();
+	}
+
+	private class ParseTask extends RecursiveTask<List<Stmt>> {
+		private final List<Splitter.Chunk> chunks;
+		private final int from;
+		private final int to;
+
+		ParseTask(List<Splitter.Chunk> chunks, int from, int to) {
+			this.chunks = chunks;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected List<Stmt> compute() {
+			int length = 0;
+			for (int i = from; i < to && length <= PARSE_THRESHOLD; ++i) {
+				length += chunks.get(i).text.length();
+			}
+
+			if (length <= PARSE_THRESHOLD || to - from < 2) {
+				StringBuilder builder = new StringBuilder(length);
+				for (int i = from; i < to; ++i) {
+					builder.append(chunks.get(i).text);
+				}
+
+				int line = from < to ? chunks.get(from).line : 1;
+				Scanner scanner = new Scanner(builder.toString(), line, runtime);
+				return new Parser(scanner.scanTokens(), lazy, runtime).parse();
+			}
+
+			int middle = (from + to) >>> 1;
+			ParseTask left = new ParseTask(chunks, from, middle);
+			left.fork();
+			List<Stmt> statements = new ParseTask(chunks, middle, to).compute();
+			List<Stmt> leftStatements = left.join();
+			leftStatements.addAll(statements);
+			return leftStatements;
+		}
+	}
+
+	private class ResolveTask extends RecursiveAction {
+		private final List<Stmt> statements;
+		private final Map<Expr, Integer> locals;
+		private final int from;
+		private final int to;
+
+		ResolveTask(List<Stmt> statements, Map<Expr, Integer> locals, int from, int to) {
+			this.statements = statements;
+			this.locals = locals;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= RESOLVE_THRESHOLD) {
+				new Resolver(locals, runtime).resolve(statements.subList(from, to));
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new ResolveTask(statements, locals, from, middle),
+				new ResolveTask(statements, locals, middle, to));
+		}
+	}
+}
@@ -10,14 +10,37 @@ class Parser {
 	private static class ParseError extends RuntimeException {}
 
 	private final List<Token> tokens;
-	private int current = 0;
+	// index of the token that ends parsing, the EOF token unless
+	// the parser is working on the token range of a lazy function body
+	private final int end;
+	private int current;
+	// in lazy mode function bodies are only pre-scanned for their
+	// closing brace and parsed on the first call of the function
+	private final boolean lazy;
 	// we need to track if we are in a loop so that
 	// we can report a syntax error if the break and continue
 	// satements are used outside of a loop
-	private int loopDepth = 0;
+	private int loopDepth;
+	private final QedRuntime runtime;
+	// number of syntax errors this parser reported
+	int errors = 0;
 
-	Parser(List<Token> tokens) {
+	Parser(List<Token> tokens, QedRuntime runtime) {
+		this(tokens, false, runtime);
+	}
+
+	Parser(List<Token> tokens, boolean lazy, QedRuntime runtime) {
+		this(tokens, 0, tokens.size() - 1, 0, lazy, runtime);
+	}
+
+	Parser(List<Token> tokens, int start, int end, int loopDepth,
+			boolean lazy, QedRuntime runtime) {
+		this.runtime = runtime;
 		this.tokens = tokens;
+		this.current = start;
+		this.end = end;
+		this.loopDepth = loopDepth;
+		this.lazy = lazy;
 	}
 
 	public List<Stmt> parse() {
@@ -32,7 +55,11 @@ class Parser {
 	private Stmt declaration() {
 		try {
 			if (match(VAR)) return varDecl();
-			if (match(FUN)) return funDecl();
+			if (match(FUN)) return funDecl(false);
+			if (match(ASYNC)) {
+				consume(FUN, "Expected 'fun' after 'async'");
+				return funDecl(true);
+			}
 			if (match(CLASS)) return classDecl();
 
 			return statement();
@@ -54,15 +81,21 @@ class Parser {
 		consume(LEFT_BRACE, "Expected '{' after class name");
 
 		List<Stmt.Function> methods = new ArrayList<>();
-		while(match(FUN)) {
-			methods.add((Stmt.Function)funDecl());
+		for (;;) {
+			boolean isAsync = match(ASYNC);
+			if (isAsync) {
+				consume(FUN, "Expected 'fun' after 'async'");
+			} else if (!match(FUN)) {
+				break;
+			}
+			methods.add((Stmt.Function)funDecl(isAsync));
 		}
 
 		consume(RIGHT_BRACE, "Expected '}' at the end of class definition");
 		return new Stmt.Class(name, superclass, methods);
 	}
 
-	private Stmt funDecl() {
+	private Stmt funDecl(boolean isAsync) {
 		Token name = consume(IDENTIFIER, "Expected function name");
 		consume(LEFT_PAREN, "Expected '(' after function name");
 		
@@ -75,8 +108,73 @@ class Parser {
 		}
 
 		consume(LEFT_BRACE, "Expected '{' before function body");
+		if (lazy) {
+			return new Stmt.Function(name, parameters, new ArrayList<>(), skipBody(), isAsync);
+		}
 		List<Stmt> body = ((Stmt.Block)blockStatement()).statements;
-		return new Stmt.Function(name, parameters, body);
+		return new Stmt.Function(name, parameters, body, null, isAsync);
+	}
+
+	// Pre-scans a function body only far enough to find its matching brace,
+	// and records the token range in between to be parsed on the first call.
+	// Parentheses and brackets are matched on the way, so that an unbalanced
+	// body is reported at load time like any other syntax error. Other errors
+	// are only found when the body is parsed.
+	private LazyBody skipBody() {
+		int start = current;
+		// the parentheses, brackets and braces still open
+		List<Token> open = new ArrayList<>();
+		int braces = 0;
+		while (!isAtEnd()) {
+			Token token = advance();
+			switch (token.type) {
+				case LEFT_BRACE:
+					++braces;
+					// fall through
+				case LEFT_PAREN:
+				case LEFT_BRACKET:
+					open.add(token);
+					break;
+				case RIGHT_BRACE:
+					if (braces == 0) {
+						if (!open.isEmpty()) unclosed(open.get(open.size() - 1));
+						return new LazyBody(tokens, start, current - 1, loopDepth);
+					}
+					--braces;
+					// the parentheses and brackets of the block are unclosed
+					Token opener = open.remove(open.size() - 1);
+					if (opener.type != LEFT_BRACE) unclosed(opener);
+					while (opener.type != LEFT_BRACE) {
+						opener = open.remove(open.size() - 1);
+					}
+					break;
+				case RIGHT_PAREN:
+				case RIGHT_BRACKET:
+					TokenType last = open.isEmpty() ? null : open.get(open.size() - 1).type;
+					if (last == null || last == LEFT_BRACE) {
+						error(token, "Unexpected '" + token.lexeme + "'");
+					} else {
+						// a ']' for a '(' closes it too
+						if (last != (token.type == RIGHT_PAREN ? LEFT_PAREN : LEFT_BRACKET)) {
+							error(token, "Expected '" + closer(last) + "'");
+						}
+						open.remove(open.size() - 1);
+					}
+					break;
+				default:
+					break;
+			}
+		}
+
+		throw error(peek(), "Expected '}' after block");
+	}
+
+	private void unclosed(Token opener) {
+		error(opener, "Expected '" + closer(opener.type) + "' to close '" + opener.lexeme + "'");
+	}
+
+	private static String closer(TokenType opener) {
+		return opener == LEFT_PAREN ? ")" : "]";
 	}
 
 	private List<Token> parameters() {
@@ -211,10 +309,10 @@ class Parser {
 		// because comma in print statement is used to seperate values
 		// that must be printed, and so we parse the next expression in precedence
 		// and handle the comma token seperately from the comma operator.
-		exprs.add(assignment());
+		exprs.add(assignmentExpression());
 
 		while(match(COMMA)) {
-			exprs.add(assignment());
+			exprs.add(assignmentExpression());
 		}
 
 		consume(SEMICOLON, "Expected ';' at the end of print statement");
@@ -228,162 +326,144 @@ class Parser {
 	}
 
 	private Expr expression() {
-		return comma();
-	}
-
-	private Expr comma() {
-		Expr expr = assignment();
-
-		while (match(COMMA)) {
+		return parsePrecedence(PREC_COMMA);
+	}
+
+	// An expression without the comma operator, for places where
+	// commas separate values: print statements, arguments and arrays
+	private Expr assignmentExpression() {
+		return parsePrecedence(PREC_ASSIGNMENT);
+	}
+
+	// Operator precedence levels, from lowest to highest.
+	// PREC_NONE is the level of tokens that don't continue an expression.
+	private static final int PREC_NONE = 0;
+	private static final int PREC_COMMA = 1;
+	private static final int PREC_ASSIGNMENT = 2;
+	private static final int PREC_TERNARY = 3;
+	private static final int PREC_OR = 4;
+	private static final int PREC_AND = 5;
+	private static final int PREC_EQUALITY = 6;
+	private static final int PREC_COMPARISON = 7;
+	private static final int PREC_ADDITION = 8;
+	private static final int PREC_MULTIPLICATION = 9;
+	private static final int PREC_UNARY = 10;
+	private static final int PREC_CALL = 11;
+
+	// precedence of each token as an infix or postfix operator
+	private static final int[] precedence;
+
+	static {
+		precedence = new int[TokenType.values().length];
+		precedence[COMMA.ordinal()] = PREC_COMMA;
+		precedence[EQUAL.ordinal()] = PREC_ASSIGNMENT;
+		precedence[QUESTION_MARK.ordinal()] = PREC_TERNARY;
+		precedence[OR.ordinal()] = PREC_OR;
+		precedence[AND.ordinal()] = PREC_AND;
+		precedence[EQUAL_EQUAL.ordinal()] = PREC_EQUALITY;
+		precedence[BANG_EQUAL.ordinal()] = PREC_EQUALITY;
+		precedence[GREATER.ordinal()] = PREC_COMPARISON;
+		precedence[GREATER_EQUAL.ordinal()] = PREC_COMPARISON;
+		precedence[LESS.ordinal()] = PREC_COMPARISON;
+		precedence[LESS_EQUAL.ordinal()] = PREC_COMPARISON;
+		precedence[PLUS.ordinal()] = PREC_ADDITION;
+		precedence[MINUS.ordinal()] = PREC_ADDITION;
+		precedence[STAR.ordinal()] = PREC_MULTIPLICATION;
+		precedence[SLASH.ordinal()] = PREC_MULTIPLICATION;
+		precedence[LEFT_PAREN.ordinal()] = PREC_CALL;
+		precedence[DOT.ordinal()] = PREC_CALL;
+		precedence[LEFT_BRACKET.ordinal()] = PREC_CALL;
+	}
+
+	// Parses an expression whose operators all have at least [minimum]
+	// precedence, in a single loop instead of one call per precedence level.
+	private Expr parsePrecedence(int minimum) {
+		Expr expr;
+		if (match(BANG, MINUS)) {
 			Token operator = previous();
-			Expr right = assignment();
-			expr = new Expr.Binary(expr, operator, right);
+			expr = new Expr.Unary(operator, parsePrecedence(PREC_UNARY));
+		} else if (match(AWAIT)) {
+			Token keyword = previous();
+			expr = new Expr.Await(keyword, parsePrecedence(PREC_UNARY));
+		} else {
+			expr = primary();
 		}
 
-		return expr;
-	}
-
-	private Expr assignment() {
-		Expr expr = ternary();
+		// After an operator only operators of the same or a lower level can
+		// follow, since each level loops on its own operators.
+		// Assignment and ternary don't loop, so after them only
+		// operators of a lower level can follow.
+		int maximum = PREC_CALL;
 
-		if (match(EQUAL)) {
-			Token equals = previous();
-			Expr rvalue = ternary();
-
-			if (expr instanceof Expr.Variable) {
-				Token name = ((Expr.Variable)expr).name;
-				return new Expr.Assign(name, rvalue);
-			} else if (expr instanceof Expr.Get) {
-				Expr.Get get = (Expr.Get)expr;
-				return new Expr.Set(get.object, get.name, rvalue); 
-			} else if (expr instanceof Expr.ArrayGet) {
-				Expr.ArrayGet get = (Expr.ArrayGet)expr;
-				return new Expr.ArraySet(get.array, get.bracket, get.index, rvalue);
+		while (!isAtEnd()) {
+			int level = precedence[peek().type.ordinal()];
+			if (level == PREC_NONE || level < minimum || level > maximum) break;
+
+			Token operator = advance();
+			maximum = level;
+			switch (operator.type) {
+				case COMMA:
+					expr = new Expr.Binary(expr, operator, parsePrecedence(PREC_ASSIGNMENT));
+					break;
+				case EQUAL:
+					expr = assign(expr, operator, parsePrecedence(PREC_TERNARY));
+					maximum = PREC_COMMA;
+					break;
+				case QUESTION_MARK: {
+					Expr onTrue = parsePrecedence(PREC_TERNARY);
+					consume(COLON, "Expected ':' after then branch of ternary operator");
+					Expr onFalse = parsePrecedence(PREC_TERNARY);
+					expr = new Expr.Ternary(expr, onTrue, onFalse);
+					maximum = PREC_ASSIGNMENT;
+					break;
+				}
+				case OR:
+				case AND:
+					expr = new Expr.Logical(expr, operator, parsePrecedence(level + 1));
+					break;
+				case STAR:
+				case SLASH:
+					// right associative
+					expr = new Expr.Binary(expr, operator, parsePrecedence(level));
+					break;
+				case LEFT_PAREN:
+					expr = finishCall(expr);
+					break;
+				case DOT: {
+					Token name = consume(IDENTIFIER, "Expected property name after '.'");
+					expr = new Expr.Get(expr, name);
+					break;
+				}
+				case LEFT_BRACKET: {
+					Expr index = expression();
+					consume(RIGHT_BRACKET, "Expected ']' at end of array subscription");
+					expr = new Expr.ArrayGet(expr, operator, index);
+					break;
+				}
+				default:
+					expr = new Expr.Binary(expr, operator, parsePrecedence(level + 1));
 			}
-
-			// We don't need to throw the error because the parser
-			// isn't in a confused state and doesn't need to be
-			// synchronized. It's in a state where it can continue parsing
-			error(equals, "Can't assign to non variable");
 		}
 
 		return expr;
 	}
 
-	private Expr ternary() {
-		Expr expr = or();
-
-		if (match(QUESTION_MARK)) {
-			Expr onTrue = ternary();
-			consume(COLON, "Expected ':' after then branch of ternary operator");
-			Expr onFalse = ternary();
-			expr = new Expr.Ternary(expr, onTrue, onFalse);
-		}
-
-		return expr;
-	}
-
-	private Expr or() {
-		Expr expr = and();
-
-		while (match(OR)) {
-			Token operator = previous();
-			Expr right = and();
-			expr = new Expr.Logical(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr and() {
-		Expr expr = equality();
-
-		while (match(AND)) {
-			Token operator = previous();
-			Expr right = equality();
-			expr = new Expr.Logical(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr equality() {
-		Expr expr = comparison();
-
-		while (match(EQUAL_EQUAL, BANG_EQUAL)) {
-			Token operator = previous();
-			Expr right = comparison();
-			expr = new Expr.Binary(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr comparison() {
-		Expr expr = addition();
-
-		while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-			Token operator = previous();
-			Expr right = addition();
-			expr = new Expr.Binary(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr addition() {
-		Expr expr = multiplication();
-
-		while (match(PLUS, MINUS)) {
-			Token operator = previous();
-			Expr right = multiplication();
-			expr = new Expr.Binary(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr multiplication() {
-		Expr expr = unary();
-
-		while (match(STAR, SLASH)) {
-			Token operator = previous();
-			Expr right = multiplication();
-			expr = new Expr.Binary(expr, operator, right);
-		}
-
-		return expr;
-	}
-
-	private Expr unary() {
-		if (match(BANG, MINUS)) {
-			Token operator = previous();
-			Expr right = unary();
-			return new Expr.Unary(operator, right);
-		}
-
-		return call();
-	}
-
-	private Expr call() {
-		Expr expr = primary();
-
-		while (true) {
-			if (match(LEFT_PAREN)) {
-				expr = finishCall(expr);
-			} else if (match(DOT)) {
-				Token name = consume(IDENTIFIER, "Expected property name after '.'");
-				expr = new Expr.Get(expr, name);
-			} else if (match(LEFT_BRACKET)) {
-				Token bracket = previous();
-				Expr index = expression();
-				consume(RIGHT_BRACKET, "Expected ']' at end of array subscription");
-				expr = new Expr.ArrayGet(expr, bracket, index);
-			} else {
-				break;
-			}
+	private Expr assign(Expr expr, Token equals, Expr rvalue) {
+		if (expr instanceof Expr.Variable) {
+			Token name = ((Expr.Variable)expr).name;
+			return new Expr.Assign(name, rvalue);
+		} else if (expr instanceof Expr.Get) {
+			Expr.Get get = (Expr.Get)expr;
+			return new Expr.Set(get.object, get.name, rvalue); 
+		} else if (expr instanceof Expr.ArrayGet) {
+			Expr.ArrayGet get = (Expr.ArrayGet)expr;
+			return new Expr.ArraySet(get.array, get.bracket, get.index, rvalue);
 		}
 
+		// We don't need to throw the error because the parser
+		// isn't in a confused state and doesn't need to be
+		// synchronized. It's in a state where it can continue parsing
+		error(equals, "Can't assign to non variable");
 		return expr;
 	}
 
@@ -404,7 +484,7 @@ class Parser {
 	private List<Expr> arguments() {
 		List<Expr> args = new ArrayList<>();
 		do {
-			args.add(assignment());
+			args.add(assignmentExpression());
 		} while(match(COMMA));
 		
 		return args;
@@ -444,7 +524,7 @@ class Parser {
 		if (match(RIGHT_BRACKET)) return new Expr.Array(values);
 
 		do {
-			values.add(assignment());
+			values.add(assignmentExpression());
 		} while (match(COMMA));
 
 		consume(RIGHT_BRACKET, "Expected ']' after array values");
@@ -458,7 +538,8 @@ class Parser {
 	}
 
 	private ParseError error(Token token, String message) {
-		QED.error(token, message);
+		++errors;
+		runtime.error(token, message);
 		return new ParseError();
 	}
 
@@ -470,6 +551,7 @@ class Parser {
 
 			switch (peek().type) {
 				case CLASS:
+				case ASYNC:
 				case FUN:
 				case VAR:
 				case FOR:
@@ -505,7 +587,7 @@ class Parser {
 	}
 
 	private Boolean isAtEnd() {
-		return peek().type == EOF;
+		return current >= end;
 	}
 
 	private Token peek() {
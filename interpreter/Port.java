@@ -0,0 +1,49 @@
+package com.interpreter;
+
+// One end of the connection between two isolates: a channel in each
+// direction. Values are deep copied by the sender (see Isolate.copy), so an
+// isolate never receives an object that another isolate can reach.
+class Port {
+	// values in each direction before send blocks
+	static final int CAPACITY = 64;
+
+	private final Channel incoming;
+	private final Channel outgoing;
+
+	Port() {
+		this(new Channel(CAPACITY), new Channel(CAPACITY));
+	}
+
+	private Port(Channel incoming, Channel outgoing) {
+		this.incoming = incoming;
+		this.outgoing = outgoing;
+	}
+
+	// The end of the other isolate
+	Port other() {
+		return new Port(outgoing, incoming);
+	}
+
+	void send(Object value) {
+		outgoing.send(Isolate.copy(value));
+	}
+
+	Object receive() {
+		return incoming.receive();
+	}
+
+	// Tells the other end that nothing more will be sent
+	void close() {
+		outgoing.close();
+	}
+
+	// The channel this end receives from, for select
+	Channel incoming() {
+		return incoming;
+	}
+
+	@Override
+	public String toString() {
+		return "<port>";
+	}
+}
@@ -0,0 +1,88 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+// The sampling profiler of --profile. Every interpreter of the runtime
+// keeps a ShadowStack of its QED calls, and a sampler thread counts the
+// collapsed stacks it finds every INTERVAL, which write() puts out in the
+// collapsed stack format that flamegraph.pl and speedscope read:
+//
+//   <script>;main:12;fib:3 1520
+class Profiler {
+	private static final long INTERVAL = 1000000; // nanoseconds
+
+	// the stacks of interpreters that are gone are dropped with them
+	private final Set<ShadowStack> stacks = Collections.newSetFromMap(new WeakHashMap<>());
+	private final Map<String, Long> samples = new HashMap<>();
+	private final Thread sampler;
+	private volatile boolean running = true;
+
+	Profiler() {
+		sampler = new Thread(this::sample, "qed-profiler");
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	// A stack for a new interpreter
+	ShadowStack register() {
+		ShadowStack stack = new ShadowStack();
+		synchronized (stacks) {
+			stacks.add(stack);
+		}
+		return stack;
+	}
+
+	private void sample() {
+		List<ShadowStack> current = new ArrayList<>();
+		while (running) {
+			LockSupport.parkNanos(INTERVAL);
+
+			current.clear();
+			synchronized (stacks) {
+				current.addAll(stacks);
+			}
+
+			synchronized (samples) {
+				for (ShadowStack stack : current) {
+					String collapsed = stack.collapse();
+					if (collapsed != null) samples.merge(collapsed, 1L, Long::sum);
+				}
+			}
+		}
+	}
+
+	// Stops sampling and writes the counts of the stacks to [path].
+	// Returns the number of samples.
+	long write(String path) throws IOException {
+		running = false;
+		try {
+			sampler.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+
+		long total = 0;
+		try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(path)))) {
+			synchronized (samples) {
+				List<String> collapsed = new ArrayList<>(samples.keySet());
+				Collections.sort(collapsed);
+				for (String stack : collapsed) {
+					writer.println(stack + " " + samples.get(stack));
+					total += samples.get(stack);
+				}
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,43 @@
+package com.interpreter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// The result of an async function call or an async I/O builtin, which
+// 'await' waits for. It's completed by whichever thread finishes the work.
+class Promise {
+	private final CompletableFuture<Object> future = new CompletableFuture<>();
+
+	void complete(Object value) {
+		future.complete(value);
+	}
+
+	void fail(Throwable error) {
+		future.completeExceptionally(error);
+	}
+
+	boolean isDone() {
+		return future.isDone();
+	}
+
+	// Waits for the promise and returns its value, or
+	// rethrows the error of the work that failed
+	Object get() {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new NativeError("Interrupted while awaiting a promise");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new NativeError(cause.toString());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "<promise>";
+	}
+}
@@ -7,80 +7,205 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.charset.Charset;
 import java.util.List;
+import java.util.ArrayList;
 
 public class QED {
-	private static final Interpreter interpreter = new Interpreter();
-	private static final Resolver resolver = new Resolver(interpreter);
-	static boolean hadError = false;
-	static boolean hadRuntimeError = false;
+	private static final QedRuntime runtime = new QedRuntime(System.out, System.err);
+	// check the script again whenever it changes, instead of running it
+	private static boolean watch = false;
+	// run any number of scripts and directories of scripts in parallel
+	private static boolean batch = false;
+	// run scripts for QedClient, listening on the socket given as the path
+	private static boolean server = false;
+	// sample the QED calls and write them to PROFILE for flame graph tools
+	private static boolean profile = false;
+	private static final String PROFILE = "qed.collapsed";
+	// count and time the statements of each line, and report the hottest
+	private static boolean hotLines = false;
+	private static final int HOT_LINES = 20;
+	// count the objects allocated by each function and line, and report the largest
+	private static boolean allocations = false;
+	private static final int ALLOCATION_SITES = 20;
+	// record the last TRACE_EVENTS calls, loop iterations and errors, and write them
+	// to TRACE on runtime errors, on SIGUSR2 and at exit, for tool/TraceDecoder
+	private static boolean trace = false;
+	private static final String TRACE = "qed.trace";
+	private static final int TRACE_EVENTS = 1 << 16;
+	// report the time, garbage collection and heap of each phase, and the size
+	// of the program, to stderr, as text or with --stats=json as a line of JSON
+	private static boolean stats = false;
+	private static boolean json = false;
 
 	public static void main(String[] args) throws IOException {
-		if (args.length > 1) {
-			System.out.println("Usage: crystal [script]");
-			System.exit(64);
-		} else if (args.length == 1) {
-			runFile(args[0]);
+		List<String> paths = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.equals("--lazy")) {
+				runtime.lazy = true;
+			} else if (arg.equals("--parallel")) {
+				runtime.parallel = true;
+			} else if (arg.equals("--compact")) {
+				runtime.compact = true;
+			} else if (arg.equals("--watch")) {
+				watch = true;
+			} else if (arg.equals("--batch")) {
+				batch = true;
+			} else if (arg.equals("--server")) {
+				server = true;
+			} else if (arg.equals("--profile")) {
+				profile = true;
+			} else if (arg.equals("--hotlines")) {
+				hotLines = true;
+			} else if (arg.equals("--allocations")) {
+				allocations = true;
+			} else if (arg.equals("--stats")) {
+				stats = true;
+			} else if (arg.equals("--stats=json")) {
+				stats = true;
+				json = true;
+			} else if (arg.equals("--trace")) {
+				trace = true;
+			} else if (arg.equals("--jmx")) {
+				// for long running scripts; the server always registers them
+				Metrics.register();
+			} else if (arg.startsWith("--")) {
+				usage();
+			} else {
+				paths.add(arg);
+			}
+		}
+
+		// both defer function bodies, one as tokens and one encoded
+		if (runtime.lazy && runtime.compact) {
+			System.out.println("--lazy and --compact can't be combined");
+			usage();
+		}
+
+		if ((profile || hotLines || allocations || trace || stats) && (watch || batch || server || paths.size() != 1)) {
+			usage();
+		} else if (hotLines && allocations) {
+			usage();
+		} else if (batch) {
+			if (watch || server || paths.isEmpty()) usage();
+			runBatch(paths);
+		} else if (server) {
+			if (watch || paths.size() != 1) usage();
+			new QedServer().serve(paths.get(0));
+		} else if (paths.size() > 1 || (watch && paths.size() != 1)) {
+			usage();
+		} else if (watch) {
+			watchFile(paths.get(0));
+		} else if (paths.size() == 1) {
+			runFile(paths.get(0));
 		} else {
 			runPrompt();
 		}
 	}
 
-	private static void runFile(String path) throws IOException {
-		byte[] bytes = Files.readAllBytes(Paths.get(path));
-		run(new String(bytes, Charset.defaultCharset()));
-
-		if (hadError) System.exit(65);
-		if (hadRuntimeError) System.exit(70);
+	private static void usage() {
+		System.out.println("Usage: crystal [--lazy | --compact] [--parallel] [--jmx] [--trace] [--stats[=json]] [--watch | --profile | --hotlines | --allocations] [script]\n"
+			+ "       crystal [--lazy | --compact] [--parallel] --batch <script or directory>...\n"
+			+ "       crystal --server <socket>\n"
+			+ "  --lazy      parse function bodies on their first call; unbalanced brackets\n"
+			+ "              are reported at load, other syntax errors in a body on its\n"
+			+ "              first call (exit 65 then), and never if it isn't called\n"
+			+ "  --compact   keep function bodies encoded until their first call\n"
+			+ "  --parallel  scan, parse and resolve top level declarations on all cores");
+		System.exit(64);
 	}
 
-	private static void runPrompt() throws IOException {
-		InputStreamReader input = new InputStreamReader(System.in);
-		BufferedReader reader = new BufferedReader(input);
-
-		for (;;) {
-			System.out.print("> ");
-			run(reader.readLine());
-			hadError = false;
+	private static void runFile(String path) throws IOException {
+		byte[] bytes = Files.readAllBytes(Paths.get(path));
+		String source = new String(bytes, Charset.defaultCharset());
+		runtime.script = path;
+		if (hotLines) runtime.instrument();
+		if (allocations) runtime.trackAllocations();
+		if (profile) runtime.profile();
+		if (trace) startTrace();
+		if (stats) runtime.stats = new Stats();
+		runtime.run(source);
+
+		if (stats) {
+			// lazy bodies are resolved as they're called
+			runtime.stats.locals = runtime.interpreter.locals.size();
+			if (json) {
+				runtime.stats.printJson(System.err);
+			} else {
+				runtime.stats.print(System.err);
+			}
 		}
-	}
 
-	private static void run(String source) {
-		Scanner scanner = new Scanner(source);
-		List<Token> tokens = scanner.scanTokens();
-
-		Parser parser = new Parser(tokens);
-		List<Stmt> statements = parser.parse();
+		if (hotLines) {
+			((InstrumentedInterpreter)runtime.interpreter).report(source, HOT_LINES, System.err);
+		}
+		if (allocations) {
+			((AllocationInterpreter)runtime.interpreter).report(source, ALLOCATION_SITES, System.err);
+		}
 
-		if (hadError) return;
+		if (profile) {
+			long samples = runtime.profiler.write(PROFILE);
+			System.err.println("[" + samples + " samples written to " + PROFILE + "]");
+		}
 
-		resolver.resolve(statements);
+		if (runtime.hadError) System.exit(65);
+		if (runtime.hadRuntimeError) System.exit(70);
+	}
 
-		if (hadError) return;
+	private static void startTrace() {
+		runtime.trace(TRACE_EVENTS, TRACE);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			int events = runtime.dumpTrace();
+			System.err.println("[" + events + " events written to " + TRACE + "]");
+		}));
 
-		interpreter.interpret(statements);
+		if (!Signals.handle("USR2", runtime::dumpTrace)) {
+			System.err.println("[the trace can't be written on SIGUSR2]");
+		}
 	}
 
-	static void error(int line, String message) {
-		report(line, "", message);
+	private static void runBatch(List<String> paths) throws IOException {
+		BatchRunner runner = new BatchRunner(runtime.lazy, runtime.parallel, runtime.compact);
+		int status = runner.run(paths, System.out);
+		if (status != 0) System.exit(status);
 	}
 
-	static void error(Token token, String message) {
-		if (token.type == TokenType.EOF)
-			report(token.line, " at end", message);
-		else
-			report(token.line, " at '" + token.lexeme + "'", message);
+	private static void watchFile(String path) throws IOException {
+		IncrementalFrontEnd frontEnd = new IncrementalFrontEnd(runtime.interpreter);
+		long modified = -1;
+
+		for (;;) {
+			long lastModified = Files.getLastModifiedTime(Paths.get(path)).toMillis();
+			if (lastModified != modified) {
+				modified = lastModified;
+				byte[] bytes = Files.readAllBytes(Paths.get(path));
+				frontEnd.update(new String(bytes, Charset.defaultCharset()));
+
+				System.out.println("[" + frontEnd.reparsed() + " of "
+					+ frontEnd.declarations() + " declarations reparsed]");
+				runtime.hadError = false;
+			}
+
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException ex) {
+				return;
+			}
+		}
 	}
 
-	static void runtimeError(RuntimeError error) {
-		System.err.println(error.getMessage()
-			+ "\n[line " + error.token.line + "]");
-		hadRuntimeError = true;
+	private static void runPrompt() throws IOException {
+		InputStreamReader input = new InputStreamReader(System.in);
+		BufferedReader reader = new BufferedReader(input);
+		// inputs that were entered before aren't scanned, parsed and resolved again
+		IncrementalFrontEnd frontEnd = new IncrementalFrontEnd(runtime.interpreter);
 
-	}
+		for (;;) {
+			System.out.print("> ");
+			String line = reader.readLine();
+			if (line == null) return;
 
-	private static void report(int line, String where, String message) {
-		System.err.println(
-			"[line " + line + "] Error" + where + ":\n" + message);
-		hadError = true;
+			List<Stmt> statements = frontEnd.add(line);
+			if (!runtime.hadError) runtime.interpreter.interpret(statements);
+			runtime.hadError = false;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package com.interpreter;
+
+// Thrown to embedding code when a script fails to compile or to run.
+// The message is the error report the command line prints on stderr.
+public class QedException extends Exception {
+	QedException(String message) {
+		super(message);
+	}
+}
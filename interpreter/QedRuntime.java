@@ -0,0 +1,233 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// The state of one run of QED code: the interpreter with its globals, the
+// error flags, and the streams that output and errors are written to.
+// Runtimes share nothing, so scripts in different runtimes can run
+// on different threads at the same time.
+class QedRuntime {
+	final PrintStream out;
+	final PrintStream err;
+	// replaced by instrument() and trackAllocations()
+	Interpreter interpreter;
+	final EventLoop loop = new EventLoop(this);
+	// set while the runtime runs on a Scheduler
+	Scheduler scheduler = null;
+	// set by profile()
+	Profiler profiler = null;
+	// set by trace()
+	TraceRecorder trace = null;
+	// set for --stats
+	Stats stats = null;
+	private final Resolver resolver;
+	// the name of the script in the events of the flight recorder
+	String script = "<script>";
+	// the programs of the isolates started by the script
+	final Map<String, CompiledProgram> isolates = Isolate.programs();
+
+	// errors may be reported from the threads of the parallel front end
+	volatile boolean hadError = false;
+	// also set by the threads of isolates whose script failed
+	volatile boolean hadRuntimeError = false;
+
+	// parse function bodies on their first call instead of up front
+	boolean lazy = false;
+	// scan, parse and resolve top level declarations on all cores
+	boolean parallel = false;
+	// encode the program in a CompactAst; the top level is decoded right away
+	// and only function bodies stay encoded until their first call
+	boolean compact = false;
+
+	// The locals are shared with child interpreters, and lazy function
+	// bodies resolve into them on whichever thread calls them first
+	QedRuntime(PrintStream out, PrintStream err) {
+		this(out, err, new ConcurrentHashMap<>());
+	}
+
+	// A runtime whose interpreter uses the resolved [locals] of a
+	// program that was compiled by another runtime
+	QedRuntime(PrintStream out, PrintStream err, Map<Expr, Integer> locals) {
+		this.out = out;
+		this.err = err;
+		this.interpreter = new Interpreter(this, locals);
+		this.resolver = new Resolver(interpreter);
+	}
+
+	void run(String source) {
+		List<Stmt> statements = load(source);
+		if (statements == null) return;
+
+		Stats.Phase executing = stats == null ? null : stats.begin("execute");
+		interpreter.interpret(statements);
+		if (executing != null) executing.end();
+	}
+
+	// A phase of loading a script, timed for Metrics, the flight recorder and --stats
+	private class Timing {
+		private final LongAdder total;
+		private final long start;
+		private final Events.Phase event;
+		private final Stats.Phase phase;
+
+		Timing(String name, LongAdder total) {
+			this.total = total;
+			this.event = Events.phase(QedRuntime.this, name);
+			this.phase = stats == null ? null : stats.begin(name);
+			this.start = System.nanoTime();
+		}
+
+		void end() {
+			total.add(System.nanoTime() - start);
+			event.commit();
+			if (phase != null) phase.end();
+		}
+	}
+
+	// Scans, parses and resolves [source] into the locals of the
+	// interpreter. Returns null if there were errors.
+	List<Stmt> load(String source) {
+		// the compact encoding needs the parsed bodies
+		if (lazy && compact) {
+			throw new IllegalStateException("lazy and compact loading can't be combined");
+		}
+
+		ParallelFrontEnd frontEnd = new ParallelFrontEnd(this, lazy);
+		List<Stmt> statements;
+		if (parallel) {
+			// the fragments are scanned and parsed together
+			Timing timing = new Timing("scan and parse", Metrics.metrics.scanAndParse);
+			statements = frontEnd.parse(source);
+			timing.end();
+		} else {
+			Timing timing = new Timing("scan", Metrics.metrics.scan);
+			Scanner scanner = new Scanner(source, this);
+			List<Token> tokens = scanner.scanTokens();
+			timing.end();
+			if (stats != null) stats.scanned(tokens);
+
+			timing = new Timing("parse", Metrics.metrics.parse);
+			Parser parser = new Parser(tokens, lazy, this);
+			statements = parser.parse();
+			timing.end();
+		}
+
+		if (hadError) return null;
+
+		if (compact) {
+			statements = CompactAst.encode(statements).decode();
+		}
+
+		// decoded function bodies resolve on their first call, like lazy ones
+		Timing timing = new Timing("resolve", Metrics.metrics.resolve);
+		if (parallel) {
+			frontEnd.resolve(statements, interpreter.locals);
+		} else {
+			resolver.resolve(statements);
+		}
+		timing.end();
+
+		if (hadError) return null;
+		if (stats != null) stats.parsed(statements);
+		return statements;
+	}
+
+	// Switches to an interpreter that counts the time spent on each line.
+	// It has to be called before anything is loaded.
+	void instrument() {
+		interpreter = new InstrumentedInterpreter(this, interpreter.locals);
+	}
+
+	// Switches to an interpreter that counts what the script allocates.
+	// It has to be called before anything is loaded.
+	void trackAllocations() {
+		interpreter = new AllocationInterpreter(this, interpreter.locals);
+	}
+
+	// Starts recording the last [size] calls, loop iterations and errors of
+	// the runtime, which are written to [path] on a runtime error and by dumpTrace()
+	void trace(int size, String path) {
+		trace = new TraceRecorder(size, path);
+	}
+
+	// Writes the trace, and returns the number of events written
+	int dumpTrace() {
+		try {
+			return trace.dump();
+		} catch (IOException ex) {
+			err.println("Can't write the trace: " + ex.getMessage());
+			return 0;
+		}
+	}
+
+	// Starts sampling the QED calls of the runtime
+	void profile() {
+		profiler = new Profiler();
+		interpreter.stack = profiler.register();
+	}
+
+	// Lets the scheduler run other scripts if this one used up its quantum,
+	// and returns the number of ticks until the next check
+	int yield() {
+		if (scheduler == null) return Integer.MAX_VALUE;
+
+		scheduler.yield();
+		return scheduler.quantum;
+	}
+
+	// Runs [body], which starts a new thread of QED code for
+	// the runtime, with a permit of the scheduler if it has one
+	<T> T scheduled(Supplier<T> body) {
+		if (scheduler == null) return body.get();
+
+		scheduler.enter();
+		try {
+			return body.get();
+		} finally {
+			scheduler.leave();
+		}
+	}
+
+	void error(int line, String message) {
+		report(line, "", message);
+	}
+
+	void error(Token token, String message) {
+		if (token.type == TokenType.EOF)
+			report(token.line, " at end", message);
+		else
+			report(token.line, " at '" + token.lexeme + "'", message);
+	}
+
+	void runtimeError(RuntimeError error) {
+		err.println(error.getMessage()
+			+ "\n[line " + error.token.line + "]");
+		hadRuntimeError = true;
+		Metrics.metrics.runtimeErrors.increment();
+		if (trace != null) {
+			trace.error(error);
+			dumpTrace();
+		}
+
+		Events.Error event = new Events.Error();
+		if (event.shouldCommit()) {
+			event.script = script;
+			event.function = error.function == null ? "" : error.function;
+			event.line = error.token.line;
+			event.message = error.getMessage();
+			event.commit();
+		}
+	}
+
+	private synchronized void report(int line, String where, String message) {
+		err.println(
+			"[line " + line + "] Error" + where + ":\n" + message);
+		hadError = true;
+	}
+}
@@ -0,0 +1,215 @@
+package com.interpreter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The --server mode: a JVM that stays up and runs scripts for QedClient
+// over a Unix domain socket, so runs skip the JVM startup and find the
+// interpreter already JIT compiled. Scripts are compiled once and cached
+// until their file changes.
+//
+// The client sends one frame with the absolute path of the script. The
+// server streams back OUT and ERR frames as the script prints, and an EXIT
+// frame with the exit status (0, 65 or 70, as the command line) last. A
+// frame is a type byte, a length int and that many bytes; the body of EXIT
+// is the status as an int. Every connection runs one script, on a thread
+// of its own, in a runtime of its own.
+class QedServer {
+	static final byte OUT = 1;
+	static final byte ERR = 2;
+	static final byte EXIT = 3;
+	// the largest frame body either side accepts; output is sent in frames
+	// of at most this size, and a request is a single path
+	static final int MAX_FRAME = 1 << 20;
+
+	// the file type bits of a unix:mode attribute, and the type of a socket
+	private static final int S_IFMT = 0170000;
+	private static final int S_IFSOCK = 0140000;
+
+	private static class Cached {
+		final long modified;
+		final CompiledProgram program;
+
+		Cached(long modified, CompiledProgram program) {
+			this.modified = modified;
+			this.program = program;
+		}
+	}
+
+	private final Map<Path, Cached> programs = new ConcurrentHashMap<>();
+
+	void serve(String socket) throws IOException {
+		Path path = Paths.get(socket);
+		removeStaleSocket(path);
+		Metrics.register();
+
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(path));
+			path.toFile().deleteOnExit();
+			System.out.println("Listening on " + path);
+
+			for (;;) {
+				SocketChannel client = server.accept();
+				Task.executor.execute(() -> handle(client));
+			}
+		}
+	}
+
+	// Removes a socket file left behind by a server that didn't shut down.
+	// Anything else at [path], or the socket of a server that is still
+	// running, is kept, and the server refuses to start.
+	static void removeStaleSocket(Path path) throws IOException {
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return;
+
+		int mode = (Integer)Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+		if ((mode & S_IFMT) != S_IFSOCK) {
+			throw new FileAlreadyExistsException(path.toString(), null,
+				"not a socket, refusing to replace it");
+		}
+
+		try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+			channel.connect(UnixDomainSocketAddress.of(path));
+			throw new FileAlreadyExistsException(path.toString(), null,
+				"a server is already running on this socket");
+		} catch (ConnectException ex) {
+			// nobody listens on it
+		}
+		Files.delete(path);
+	}
+
+	private void handle(SocketChannel client) {
+		try (SocketChannel channel = client) {
+			Frame request = readFrame(channel);
+			Path script = Paths.get(new String(request.body, StandardCharsets.UTF_8));
+
+			// a frame per line
+			PrintStream out = new PrintStream(
+				new BufferedOutputStream(new FrameOutputStream(channel, OUT)), true);
+			PrintStream err = new PrintStream(
+				new BufferedOutputStream(new FrameOutputStream(channel, ERR)), true);
+			int status = run(script, out, err);
+			out.flush();
+			err.flush();
+
+			ByteBuffer exit = ByteBuffer.allocate(4).putInt(status);
+			writeFrame(channel, EXIT, exit.array(), 0, 4);
+		} catch (IOException ex) {
+			// the client went away, there's no one to tell
+		}
+	}
+
+	private int run(Path script, PrintStream out, PrintStream err) {
+		CompiledProgram program;
+		try {
+			program = compile(script);
+		} catch (IOException ex) {
+			err.println("Can't read " + script + ": " + ex.getMessage());
+			return 66;
+		} catch (QedException ex) {
+			err.println(ex.getMessage());
+			return 65;
+		}
+
+		QedRuntime runtime = program.runtime(out, err);
+		runtime.script = script.toString();
+		program.run(runtime);
+		return runtime.hadRuntimeError ? 70 : 0;
+	}
+
+	// The compiled program of [script], compiled again only if it changed
+	private CompiledProgram compile(Path script) throws IOException, QedException {
+		long modified = Files.getLastModifiedTime(script).toMillis();
+		Cached cached = programs.get(script);
+		if (cached != null && cached.modified == modified) return cached.program;
+
+		byte[] bytes = Files.readAllBytes(script);
+		CompiledProgram program = CompiledProgram.compile(new String(bytes, Charset.defaultCharset()));
+		programs.put(script, new Cached(modified, program));
+		return program;
+	}
+
+	static class Frame {
+		final byte type;
+		final byte[] body;
+
+		Frame(byte type, byte[] body) {
+			this.type = type;
+			this.body = body;
+		}
+	}
+
+	static Frame readFrame(SocketChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(5);
+		readFully(channel, header);
+		header.flip();
+		byte type = header.get();
+		int length = header.getInt();
+		if (length < 0 || length > MAX_FRAME) throw new IOException("Bad frame length " + length);
+
+		ByteBuffer body = ByteBuffer.allocate(length);
+		readFully(channel, body);
+		return new Frame(type, body.array());
+	}
+
+	static void writeFrame(SocketChannel channel, byte type, byte[] bytes,
+			int offset, int length) throws IOException {
+		ByteBuffer frame = ByteBuffer.allocate(5 + length);
+		frame.put(type).putInt(length).put(bytes, offset, length);
+		frame.flip();
+		// frames of tasks printing at the same time must not interleave
+		synchronized (channel) {
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+			}
+		}
+	}
+
+	private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) throw new IOException("Connection closed");
+		}
+	}
+
+	// Writes everything written to it as a frame of [type]
+	private static class FrameOutputStream extends OutputStream {
+		private final SocketChannel channel;
+		private final byte type;
+
+		FrameOutputStream(SocketChannel channel, byte type) {
+			this.channel = channel;
+			this.type = type;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				int size = Math.min(length, MAX_FRAME);
+				writeFrame(channel, type, bytes, offset, size);
+				offset += size;
+				length -= size;
+			}
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package com.interpreter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copies statements with their tokens moved by a number of lines, for a
+// declaration that IncrementalFrontEnd reuses at another line. Tokens are
+// immutable, and statements that already ran or are still running keep the
+// lines they had. The resolved locals of the statements are copied to the
+// new nodes.
+class Relocator implements Expr.Visitor<Expr>, Stmt.Visitor<Stmt> {
+	private final int delta;
+	private final Map<Expr, Integer> from;
+	private final Map<Expr, Integer> to;
+	// a token can be in several nodes, like the name of a method
+	private final Map<Token, Token> tokens = new IdentityHashMap<>();
+
+	private Relocator(int delta, Map<Expr, Integer> from, Map<Expr, Integer> to) {
+		this.delta = delta;
+		this.from = from;
+		this.to = to;
+	}
+
+	// Returns [statements] moved by [delta] lines. The locals of the copies
+	// are looked up in [from] and put in [to].
+	static List<Stmt> move(List<Stmt> statements, int delta,
+			Map<Expr, Integer> from, Map<Expr, Integer> to) {
+		return new Relocator(delta, from, to).statements(statements);
+	}
+
+	private List<Stmt> statements(List<Stmt> statements) {
+		List<Stmt> copies = new ArrayList<>(statements.size());
+		for (Stmt stmt : statements) {
+			copies.add(copy(stmt));
+		}
+		return copies;
+	}
+
+	private List<Expr> expressions(List<Expr> expressions) {
+		List<Expr> copies = new ArrayList<>(expressions.size());
+		for (Expr expr : expressions) {
+			copies.add(copy(expr));
+		}
+		return copies;
+	}
+
+	private List<Token> tokens(List<Token> tokens) {
+		List<Token> copies = new ArrayList<>(tokens.size());
+		for (Token token : tokens) {
+			copies.add(copy(token));
+		}
+		return copies;
+	}
+
+	private Stmt copy(Stmt stmt) {
+		return stmt == null ? null : stmt.accept(this);
+	}
+
+	private Expr copy(Expr expr) {
+		if (expr == null) return null;
+
+		Expr copy = expr.accept(this);
+		Integer depth = from.get(expr);
+		if (depth != null) to.put(copy, depth);
+		return copy;
+	}
+
+	private Token copy(Token token) {
+		if (token == null) return null;
+		return tokens.computeIfAbsent(token, t ->
+			new Token(t.type, t.lexeme, t.literal, t.line + delta));
+	}
+
+	private Stmt.Function function(Stmt.Function stmt) {
+		return new Stmt.Function(copy(stmt.name), tokens(stmt.parameters),
+			statements(stmt.body), stmt.lazy, stmt.isAsync);
+	}
+
+	@Override
+	public Stmt visitBlockStmt(Stmt.Block stmt) {
+		return new Stmt.Block(statements(stmt.statements));
+	}
+
+	@Override
+	public Stmt visitExpressionStmt(Stmt.Expression stmt) {
+		return new Stmt.Expression(copy(stmt.expression));
+	}
+
+	@Override
+	public Stmt visitFunctionStmt(Stmt.Function stmt) {
+		return function(stmt);
+	}
+
+	@Override
+	public Stmt visitClassStmt(Stmt.Class stmt) {
+		List<Stmt.Function> methods = new ArrayList<>(stmt.methods.size());
+		for (Stmt.Function method : stmt.methods) {
+			methods.add(function(method));
+		}
+		return new Stmt.Class(copy(stmt.name),
+			(Expr.Variable)copy(stmt.superclass), methods);
+	}
+
+	@Override
+	public Stmt visitIfStmt(Stmt.If stmt) {
+		return new Stmt.If(copy(stmt.condition), copy(stmt.thenBranch), copy(stmt.elseBranch));
+	}
+
+	@Override
+	public Stmt visitWhileStmt(Stmt.While stmt) {
+		return new Stmt.While(copy(stmt.condition), copy(stmt.body));
+	}
+
+	@Override
+	public Stmt visitForStmt(Stmt.For stmt) {
+		return new Stmt.For(copy(stmt.initializer), copy(stmt.condition),
+			copy(stmt.increment), copy(stmt.body));
+	}
+
+	@Override
+	public Stmt visitBreakStmt(Stmt.Break stmt) {
+		return new Stmt.Break();
+	}
+
+	@Override
+	public Stmt visitContinueStmt(Stmt.Continue stmt) {
+		return new Stmt.Continue();
+	}
+
+	@Override
+	public Stmt visitPrintStmt(Stmt.Print stmt) {
+		return new Stmt.Print(expressions(stmt.expressions));
+	}
+
+	@Override
+	public Stmt visitReturnStmt(Stmt.Return stmt) {
+		return new Stmt.Return(copy(stmt.keyword), copy(stmt.value));
+	}
+
+	@Override
+	public Stmt visitVarStmt(Stmt.Var stmt) {
+		return new Stmt.Var(copy(stmt.name), copy(stmt.initializer));
+	}
+
+	@Override
+	public Expr visitArrayExpr(Expr.Array expr) {
+		return new Expr.Array(expressions(expr.values));
+	}
+
+	@Override
+	public Expr visitAssignExpr(Expr.Assign expr) {
+		return new Expr.Assign(copy(expr.name), copy(expr.value));
+	}
+
+	@Override
+	public Expr visitBinaryExpr(Expr.Binary expr) {
+		return new Expr.Binary(copy(expr.left), copy(expr.operator), copy(expr.right));
+	}
+
+	@Override
+	public Expr visitCallExpr(Expr.Call expr) {
+		return new Expr.Call(copy(expr.callee), copy(expr.paren), expressions(expr.arguments));
+	}
+
+	@Override
+	public Expr visitGetExpr(Expr.Get expr) {
+		return new Expr.Get(copy(expr.object), copy(expr.name));
+	}
+
+	@Override
+	public Expr visitSetExpr(Expr.Set expr) {
+		return new Expr.Set(copy(expr.object), copy(expr.name), copy(expr.value));
+	}
+
+	@Override
+	public Expr visitArrayGetExpr(Expr.ArrayGet expr) {
+		return new Expr.ArrayGet(copy(expr.array), copy(expr.bracket), copy(expr.index));
+	}
+
+	@Override
+	public Expr visitArraySetExpr(Expr.ArraySet expr) {
+		return new Expr.ArraySet(copy(expr.array), copy(expr.bracket),
+			copy(expr.index), copy(expr.value));
+	}
+
+	@Override
+	public Expr visitThisExpr(Expr.This expr) {
+		return new Expr.This(copy(expr.keyword));
+	}
+
+	@Override
+	public Expr visitSuperExpr(Expr.Super expr) {
+		return new Expr.Super(copy(expr.keyword), copy(expr.method));
+	}
+
+	@Override
+	public Expr visitLogicalExpr(Expr.Logical expr) {
+		return new Expr.Logical(copy(expr.left), copy(expr.operator), copy(expr.right));
+	}
+
+	@Override
+	public Expr visitGroupingExpr(Expr.Grouping expr) {
+		return new Expr.Grouping(copy(expr.expression));
+	}
+
+	@Override
+	public Expr visitLiteralExpr(Expr.Literal expr) {
+		return new Expr.Literal(expr.value);
+	}
+
+	@Override
+	public Expr visitUnaryExpr(Expr.Unary expr) {
+		return new Expr.Unary(copy(expr.operator), copy(expr.right));
+	}
+
+	@Override
+	public Expr visitTernaryExpr(Expr.Ternary expr) {
+		return new Expr.Ternary(copy(expr.condition), copy(expr.onTrue), copy(expr.onFalse));
+	}
+
+	@Override
+	public Expr visitAwaitExpr(Expr.Await expr) {
+		return new Expr.Await(copy(expr.keyword), copy(expr.value));
+	}
+
+	@Override
+	public Expr visitVariableExpr(Expr.Variable expr) {
+		return new Expr.Variable(copy(expr.name));
+	}
+}
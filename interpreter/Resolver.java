@@ -6,16 +6,41 @@ import java.util.Map;
 import java.util.HashMap;
 
 class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
-	private final Interpreter interpreter;
+	// receives the scope distance of each resolved local
+	private final Map<Expr, Integer> locals;
+	// where errors are reported
+	final QedRuntime runtime;
+	// number of errors this resolver reported
+	int errors = 0;
 	private final Stack<Map<String, Boolean>> scopes = new Stack<>();
 	private FunctionType currentFunction = FunctionType.NONE;
+	// await can be used at the top level and in async functions
+	private boolean currentAsync = false;
 	private ClassType currentClass = ClassType.NONE;
 
 	Resolver(Interpreter interpreter) {
-		this.interpreter = interpreter;
+		this(interpreter.locals, interpreter.runtime);
 	}
 
-	private enum FunctionType {
+	Resolver(Map<Expr, Integer> locals, QedRuntime runtime) {
+		this.locals = locals;
+		this.runtime = runtime;
+	}
+
+	// Copies the state of another resolver, so that a lazy function body
+	// can be resolved later against the scopes visible at its declaration
+	private Resolver(Resolver resolver) {
+		this.locals = resolver.locals;
+		this.runtime = resolver.runtime;
+		for (Map<String, Boolean> scope : resolver.scopes) {
+			scopes.push(new HashMap<>(scope));
+		}
+		this.currentFunction = resolver.currentFunction;
+		this.currentAsync = resolver.currentAsync;
+		this.currentClass = resolver.currentClass;
+	}
+
+	enum FunctionType {
 		NONE, FUNCTION, METHOD, INITIALIZER
 	}
 
@@ -29,6 +54,11 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 		}
 	}
 
+	private void error(Token token, String message) {
+		++errors;
+		runtime.error(token, message);
+	}
+
 	private void resolveExprs(List<Expr> expressions) {
 		for (Expr expr : expressions) {
 			resolve(expr);
@@ -84,8 +114,12 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
 		for (Stmt.Function method : stmt.methods) {
 			FunctionType type = FunctionType.METHOD;
-			if (method.name.lexeme.equals("init"))
+			if (method.name.lexeme.equals("init")) {
 				type = FunctionType.INITIALIZER;
+				if (method.isAsync) {
+					error(method.name, "An initializer can't be async");
+				}
+			}
 
 			resolveFunction(method, type);
 		}
@@ -105,9 +139,17 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 		return null;
 	}
 
-	private void resolveFunction(Stmt.Function function, FunctionType type) {
+	void resolveFunction(Stmt.Function function, FunctionType type) {
+		if (function.lazy != null && !function.lazy.isParsed()) {
+			// the body isn't parsed yet, it's resolved on the first call
+			function.lazy.defer(new Resolver(this), type);
+			return;
+		}
+
 		FunctionType enclosingFunction = currentFunction;
+		boolean enclosingAsync = currentAsync;
 		currentFunction = type;
+		currentAsync = function.isAsync;
 
 		beginScope();
 		for (Token param : function.parameters) {
@@ -118,6 +160,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 		endScope();
 
 		currentFunction = enclosingFunction;
+		currentAsync = enclosingAsync;
 	}
 
 	@Override
@@ -134,7 +177,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	public Void visitVariableExpr(Expr.Variable expr) {
 		if (!scopes.isEmpty()
 				&& scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-			QED.error(expr.name, "Cannot read local variable in its own initializer");
+			error(expr.name, "Cannot read local variable in its own initializer");
 		}
 
 		resolveLocal(expr, expr.name);
@@ -144,7 +187,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	@Override
 	public Void visitThisExpr(Expr.This expr) {
 		if (currentClass == ClassType.NONE) {
-			QED.error(expr.keyword, "'this' can't be used outside of a class method");
+			error(expr.keyword, "'this' can't be used outside of a class method");
 			return null;
 		}
 		resolveLocal(expr, expr.keyword);
@@ -154,7 +197,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	@Override
 	public Void visitSuperExpr(Expr.Super expr) {
 		if (currentClass != ClassType.SUBCLASS) {
-			QED.error(expr.keyword, "'super' can't be used outside of a subclass method");
+			error(expr.keyword, "'super' can't be used outside of a subclass method");
 			return null;
 		}
 		resolveLocal(expr, expr.keyword);
@@ -171,7 +214,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	private void resolveLocal(Expr expr, Token name) {
 		for (int i = scopes.size() - 1; i >= 0; --i) {
 			if (scopes.get(i).containsKey(name.lexeme)) {
-				interpreter.resolve(expr, scopes.size() - 1 - i);
+				locals.put(expr, scopes.size() - 1 - i);
 				return;
 			}
 		}
@@ -185,7 +228,7 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 
 		Map<String, Boolean> scope = scopes.peek();
 		if (scope.containsKey(name.lexeme)) {
-			QED.error(name, "Variable " + name.lexeme + " already declared in this scope");
+			error(name, "Variable " + name.lexeme + " already declared in this scope");
 		}
 		scope.put(name.lexeme, false);
 	}
@@ -239,12 +282,12 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 	@Override
 	public Void visitReturnStmt(Stmt.Return stmt) {
 		if (currentFunction == FunctionType.NONE) {
-			QED.error(stmt.keyword, "'return' can't be used outside of a function");
+			error(stmt.keyword, "'return' can't be used outside of a function");
 		}
 
 		if (stmt.value != null) {
 			if (currentFunction == FunctionType.INITIALIZER) {
-				QED.error(stmt.keyword, "'return' with value can't be used in a method");
+				error(stmt.keyword, "'return' with value can't be used in a method");
 			}
 
 			resolve(stmt.value);
@@ -336,6 +379,16 @@ class Resolver implements Expr.Visitor<Void>, Stmt.Visitor<Void> {
 		return null;
 	}
 
+	@Override
+	public Void visitAwaitExpr(Expr.Await expr) {
+		if (currentFunction != FunctionType.NONE && !currentAsync) {
+			error(expr.keyword, "'await' can only be used in an async function");
+		}
+
+		resolve(expr.value);
+		return null;
+	}
+
 	@Override
 	public Void visitUnaryExpr(Expr.Unary expr) {
 		resolve(expr.right);
@@ -2,6 +2,9 @@ package com.interpreter;
 
 class RuntimeError extends RuntimeException {
 	final Token token;
+	// the innermost QED function the error was raised in, set by
+	// Function as the error leaves it, null at the top level
+	String function = null;
 
 	RuntimeError(Token token, String message) {
 		super(message);
@@ -12,10 +12,19 @@ class Scanner {
 	private final List<Token> tokens = new ArrayList<>();
 	private int start = 0;
 	private int current = 0;
-	private int line = 1;
+	private int line;
+	private final QedRuntime runtime;
 
-	Scanner(String source) {
+	Scanner(String source, QedRuntime runtime) {
+		this(source, 1, runtime);
+	}
+
+	// [line] is the line of the first character, for sources
+	// that are a fragment of a larger script
+	Scanner(String source, int line, QedRuntime runtime) {
 		this.source = source;
+		this.line = line;
+		this.runtime = runtime;
 	}
 
 	List<Token> scanTokens() {
@@ -97,7 +106,7 @@ class Scanner {
 				if (isDigit(c)) number();
 				else if (isAlpha(c)) identifier();
 				else
-					QED.error(line, "Unexpected character.");
+					runtime.error(line, "Unexpected character.");
 		}
 	}
 
@@ -134,7 +143,7 @@ class Scanner {
 
 		// Unterminated string
 		if (isAtEnd()) {
-			QED.error(line, "Unterminated string.");
+			runtime.error(line, "Unterminated string.");
 			return;
 		}
 
@@ -158,7 +167,7 @@ class Scanner {
 		}
 
 		if (isAtEnd()) {
-			QED.error(line, "Unterminated block comment");
+			runtime.error(line, "Unterminated block comment");
 			return;
 		}
 
@@ -195,6 +204,8 @@ class Scanner {
 	static {
 		keywords = new HashMap<>();
 		keywords.put("and", AND);
+		keywords.put("async", ASYNC);
+		keywords.put("await", AWAIT);
 		keywords.put("break", BREAK);
 		keywords.put("class", CLASS);
 		keywords.put("continue", CONTINUE);
@@ -0,0 +1,77 @@
+package com.interpreter;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+// Runs the executions of many programs, like the scripts of different
+// tenants, fairly on a fixed number of workers.
+//
+// An execution only runs QED code while it holds one of [workers] permits.
+// The interpreter counts loop iterations and calls, and after [quantum] of
+// them an execution gives its permit to the longest waiting one, if any,
+// and queues up again. So a script stuck in 'while (true)' only delays
+// the others by a quantum per round, and an execution waits at most
+// about (executions / workers) quanta for its next turn. Executions give
+// their permit up while they block on tasks, channels or promises.
+//
+// So the workers are permits, not a fixed pool of threads: an execution
+// preempted in the middle of a loop keeps its state on the Java stack, and
+// can only give way by blocking its thread. Every execution has a thread,
+// which waits while it doesn't hold a permit: a virtual thread on Java 21
+// and later, so thousands of executions cost little more than their
+// interpreters, and a platform thread of Task's cached pool on Java 17,
+// where callers should bound how many executions they submit at once.
+public final class Scheduler {
+	final int quantum;
+	// fair, so that permits go round in the order executions asked for them
+	private final Semaphore permits;
+	private final ThreadLocal<Boolean> running = ThreadLocal.withInitial(() -> false);
+
+	public Scheduler(int workers, int quantum) {
+		if (workers < 1 || quantum < 1) {
+			throw new IllegalArgumentException("Scheduler needs at least one worker and a positive quantum");
+		}
+
+		this.quantum = quantum;
+		this.permits = new Semaphore(workers, true);
+	}
+
+	// Runs [program] with [arguments] as its globals, see CompiledProgram.execute
+	public CompletableFuture<Execution> submit(CompiledProgram program, Map<String, ?> arguments) {
+		CompletableFuture<Execution> future = new CompletableFuture<>();
+		Task.executor.execute(() -> {
+			try {
+				future.complete(program.execute(arguments, this));
+			} catch (QedException | RuntimeException | Error ex) {
+				future.completeExceptionally(ex);
+			}
+		});
+		return future;
+	}
+
+	// Waits for a permit for the current thread
+	void enter() {
+		permits.acquireUninterruptibly();
+		running.set(true);
+	}
+
+	// Gives up the permit of the current thread.
+	// Returns whether it had one.
+	boolean leave() {
+		if (!running.get()) return false;
+
+		running.set(false);
+		permits.release();
+		return true;
+	}
+
+	// Gives the permit of the current thread to the next waiting one
+	// and waits for another, if any thread is waiting
+	void yield() {
+		if (running.get() && permits.hasQueuedThreads()) {
+			permits.release();
+			permits.acquireUninterruptibly();
+		}
+	}
+}
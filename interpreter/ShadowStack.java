@@ -0,0 +1,58 @@
+package com.interpreter;
+
+import java.util.Arrays;
+
+// The QED calls in progress on one Interpreter, for the profilers. Frames
+// are the Stmt.Function of a function call, the Class of an instantiation,
+// or a String like "<script>". The owning thread pushes and pops, and the
+// sampler reads without locking, so a sample may be off by a frame that
+// was being pushed or popped at that moment.
+class ShadowStack {
+	private volatile Object[] frames = new Object[64];
+	private volatile int depth = 0;
+
+	void push(Object frame) {
+		Object[] frames = this.frames;
+		if (depth == frames.length) {
+			frames = Arrays.copyOf(frames, frames.length * 2);
+			this.frames = frames;
+		}
+		frames[depth] = frame;
+		++depth;
+	}
+
+	void pop() {
+		--depth;
+	}
+
+	// The innermost frame, or null if nothing is running
+	Object top() {
+		int depth = this.depth;
+		return depth > 0 ? frames[depth - 1] : null;
+	}
+
+	// The frames from the outermost in, separated by ';' as in the
+	// collapsed stack format of flame graph tools, or null if empty
+	String collapse() {
+		int depth = this.depth;
+		Object[] frames = this.frames;
+		if (depth == 0) return null;
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < depth && i < frames.length; ++i) {
+			if (i > 0) builder.append(';');
+			builder.append(name(frames[i]));
+		}
+		return builder.toString();
+	}
+
+	// "name:line" of a function, the name of a class
+	static String name(Object frame) {
+		if (frame instanceof Stmt.Function) {
+			Stmt.Function function = (Stmt.Function)frame;
+			return function.name.lexeme + ":" + function.name.line;
+		}
+		if (frame instanceof Class) return ((Class)frame).name;
+		return String.valueOf(frame);
+	}
+}
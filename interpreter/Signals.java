@@ -0,0 +1,34 @@
+package com.interpreter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+// Runs an action when the process gets a signal, like SIGUSR2 for --trace.
+// sun.misc.Signal is only reached by reflection, so that compiling the
+// interpreter doesn't warn about the internal API, and on a JVM without it
+// the signal is just not handled.
+final class Signals {
+	private Signals() {}
+
+	// Handles the signal [name] ("USR2" for SIGUSR2) with [action] on
+	// a thread of the JVM. Returns false if it can't be handled.
+	static boolean handle(String name, Runnable action) {
+		try {
+			java.lang.Class<?> signal = java.lang.Class.forName("sun.misc.Signal");
+			java.lang.Class<?> handler = java.lang.Class.forName("sun.misc.SignalHandler");
+			Object proxy = Proxy.newProxyInstance(handler.getClassLoader(),
+				new java.lang.Class<?>[] { handler }, (self, method, arguments) -> {
+					if (method.getName().equals("handle")) action.run();
+					return null;
+				});
+
+			Constructor<?> create = signal.getConstructor(String.class);
+			Method handle = signal.getMethod("handle", signal, handler);
+			handle.invoke(null, create.newInstance(name), proxy);
+			return true;
+		} catch (ReflectiveOperationException | LinkageError | IllegalArgumentException ex) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package com.interpreter;
+
+import java.util.List;
+import java.util.ArrayList;
+
+// Splits a source into its top level declarations without scanning it.
+// It only balances brackets and skips strings and comments, so it's much
+// cheaper than the scanner. Each chunk keeps the whitespace and comments
+// that precede it, and the line it starts at so that it can be scanned alone.
+class Splitter {
+	static class Chunk {
+		final String text;
+		final int line;
+		final int column;
+
+		Chunk(String text, int line, int column) {
+			this.text = text;
+			this.line = line;
+			this.column = column;
+		}
+	}
+
+	private final String source;
+	private final List<Chunk> chunks = new ArrayList<>();
+	private int start = 0;
+	private int current = 0;
+	private int line = 1;
+	private int lineStart = 0;
+	private int startLine = 1;
+	private int startColumn = 1;
+	// nesting of all of (), [] and {}
+	private int depth = 0;
+
+	private Splitter(String source) {
+		this.source = source;
+	}
+
+	static List<Chunk> split(String source) {
+		return new Splitter(source).split();
+	}
+
+	private List<Chunk> split() {
+		while (!isAtEnd()) {
+			char c = source.charAt(current++);
+			switch (c) {
+				case '(': case '[': case '{': ++depth; break;
+				case ')': case ']': --depth; break;
+				case '}':
+					// a declaration ends with the brace closing a function,
+					// class or block. An unbalanced brace is left to the parser
+					if (--depth <= 0) {
+						depth = 0;
+						boundary();
+					}
+					break;
+				case ';':
+					if (depth == 0) boundary();
+					break;
+				case '\n': newLine(); break;
+				case '"': string(); break;
+				case '/':
+					if (peek() == '/') {
+						while (peek() != '\n' && !isAtEnd()) ++current;
+					} else if (peek() == '*') {
+						++current;
+						comment();
+					}
+					break;
+			}
+		}
+
+		if (start < source.length()) {
+			chunks.add(new Chunk(source.substring(start), startLine, startColumn));
+		}
+		return chunks;
+	}
+
+	private void boundary() {
+		// 'if (c) {...} else {...}' is a single declaration
+		if (startsWord(skipTrivia(current), "else")) return;
+
+		chunks.add(new Chunk(source.substring(start, current), startLine, startColumn));
+		start = current;
+		startLine = line;
+		startColumn = current - lineStart + 1;
+	}
+
+	private void string() {
+		while (peek() != '"' && !isAtEnd()) {
+			if (source.charAt(current++) == '\n') newLine();
+		}
+		// the closing quote
+		if (!isAtEnd()) ++current;
+	}
+
+	private void comment() {
+		while (!isAtEnd()) {
+			char c = source.charAt(current++);
+			if (c == '*' && peek() == '/') {
+				++current;
+				return;
+			}
+			if (c == '/' && peek() == '*') {
+				++current;
+				comment();
+			} else if (c == '\n') {
+				newLine();
+			}
+		}
+	}
+
+	private void newLine() {
+		++line;
+		lineStart = current;
+	}
+
+	// Returns the index of the first character after the whitespace
+	// and comments starting at [index]
+	private int skipTrivia(int index) {
+		while (index < source.length()) {
+			char c = source.charAt(index);
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+				++index;
+			} else if (source.startsWith("//", index)) {
+				while (index < source.length() && source.charAt(index) != '\n') ++index;
+			} else if (source.startsWith("/*", index)) {
+				int nesting = 0;
+				do {
+					if (source.startsWith("/*", index)) {
+						++nesting;
+						index += 2;
+					} else if (source.startsWith("*/", index)) {
+						--nesting;
+						index += 2;
+					} else {
+						++index;
+					}
+				} while (nesting > 0 && index < source.length());
+			} else {
+				break;
+			}
+		}
+		return index;
+	}
+
+	private boolean startsWord(int index, String word) {
+		if (!source.startsWith(word, index)) return false;
+		int after = index + word.length();
+		if (after >= source.length()) return true;
+		char c = source.charAt(after);
+		return !(Character.isLetterOrDigit(c) || c == '_');
+	}
+
+	private char peek() {
+		if (isAtEnd()) return '\0';
+		return source.charAt(current);
+	}
+
+	private boolean isAtEnd() {
+		return current >= source.length();
+	}
+}
@@ -0,0 +1,143 @@
+package com.interpreter;
+
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The statistics of --stats: for each phase of a run, its wall time, the
+// time the JVM spent collecting garbage and the peak heap use, and for the
+// program its tokens, AST nodes by type and resolved locals.
+//
+// The peak heap of a phase is the sum of the peaks of the heap pools since
+// it began, which may have been at different times, so it's an upper bound.
+// Libraries loaded with load() add their own phases, which happen during
+// the execute phase and reset the peaks it would report.
+class Stats {
+	class Phase {
+		final String name;
+		private final long start;
+		private final long startGcMillis;
+		private final long startGcs;
+		long nanos;
+		long gcMillis;
+		long gcs;
+		long peakHeap;
+
+		private Phase(String name) {
+			this.name = name;
+			for (MemoryPoolMXBean pool : heap) {
+				pool.resetPeakUsage();
+			}
+			this.startGcMillis = gcMillis();
+			this.startGcs = gcs();
+			this.start = System.nanoTime();
+		}
+
+		void end() {
+			nanos = System.nanoTime() - start;
+			gcMillis = gcMillis() - startGcMillis;
+			gcs = gcs() - startGcs;
+			for (MemoryPoolMXBean pool : heap) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+			phases.add(this);
+		}
+	}
+
+	private final List<MemoryPoolMXBean> heap = new ArrayList<>();
+	private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+	private final List<Phase> phases = new ArrayList<>();
+	// of the script and the libraries it loads; tokens stays -1
+	// if they weren't counted, as with --parallel
+	private int tokens = -1;
+	private final Map<String, Integer> nodes = new TreeMap<>();
+	int locals = 0;
+
+	Stats() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) heap.add(pool);
+		}
+	}
+
+	Phase begin(String name) {
+		return new Phase(name);
+	}
+
+	void scanned(List<Token> scanned) {
+		tokens = Math.max(0, tokens) + scanned.size();
+	}
+
+	void parsed(List<Stmt> statements) {
+		for (Map.Entry<String, Integer> entry : NodeCounter.count(statements).entrySet()) {
+			nodes.merge(entry.getKey(), entry.getValue(), Integer::sum);
+		}
+	}
+
+	private long gcMillis() {
+		long millis = 0;
+		for (GarbageCollectorMXBean collector : collectors) {
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+		return millis;
+	}
+
+	private long gcs() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : collectors) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	void print(PrintStream out) {
+		out.printf("%-16s %10s %8s %6s %14s%n", "phase", "wall ms", "gc ms", "gcs", "peak heap MB");
+		for (Phase phase : phases) {
+			out.printf("%-16s %10.3f %8d %6d %14.1f%n", phase.name, phase.nanos / 1e6,
+				phase.gcMillis, phase.gcs, phase.peakHeap / (1024.0 * 1024.0));
+		}
+
+		out.println("tokens: " + (tokens < 0 ? "not counted" : tokens));
+		out.println("locals: " + locals);
+
+		int total = 0;
+		for (int count : nodes.values()) {
+			total += count;
+		}
+		out.println("nodes: " + total);
+		for (Map.Entry<String, Integer> entry : nodes.entrySet()) {
+			out.printf("  %-16s %8d%n", entry.getKey(), entry.getValue());
+		}
+	}
+
+	// The same as print(), as one line of JSON
+	void printJson(PrintStream out) {
+		StringBuilder json = new StringBuilder("{\"phases\":[");
+		for (int i = 0; i < phases.size(); ++i) {
+			Phase phase = phases.get(i);
+			if (i > 0) json.append(',');
+			json.append("{\"name\":\"").append(phase.name)
+				.append("\",\"wallNanos\":").append(phase.nanos)
+				.append(",\"gcMillis\":").append(phase.gcMillis)
+				.append(",\"gcs\":").append(phase.gcs)
+				.append(",\"peakHeapBytes\":").append(phase.peakHeap)
+				.append('}');
+		}
+		json.append("],\"tokens\":").append(tokens < 0 ? "null" : String.valueOf(tokens));
+		json.append(",\"locals\":").append(locals);
+		json.append(",\"nodes\":{");
+		boolean first = true;
+		for (Map.Entry<String, Integer> entry : nodes.entrySet()) {
+			if (!first) json.append(',');
+			first = false;
+			json.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+		}
+		json.append("}}");
+		out.println(json);
+	}
+}
@@ -45,10 +45,12 @@ abstract class Stmt {
     }
 
     static class Function extends Stmt {
-        Function(Token name, List<Token> parameters, List<Stmt> body) {
+        Function(Token name, List<Token> parameters, List<Stmt> body, LazyBody lazy, boolean isAsync) {
             this.name = name;
             this.parameters = parameters;
             this.body = body;
+            this.lazy = lazy;
+            this.isAsync = isAsync;
         }
 
         <R> R accept(Visitor<R> visitor) {
@@ -58,6 +60,8 @@ abstract class Stmt {
         final Token name;
         final List<Token> parameters;
         final List<Stmt> body;
+        final LazyBody lazy;
+        final boolean isAsync;
     }
 
     static class Class extends Stmt {
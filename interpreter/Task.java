@@ -0,0 +1,64 @@
+package com.interpreter;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// A QED function running concurrently, created by spawn(fn) and waited
+// for by join(task). The function runs in its own Interpreter, which has
+// its own environment pointer but shares the globals and the program with
+// the spawning interpreter. See the README for what is safe to share.
+class Task {
+	// Virtual threads where the JVM has them (Java 21), so that spawning is
+	// cheap and blocked tasks don't hold OS threads. Otherwise, as on Java
+	// 17, a cached pool of daemon platform threads, where every running or
+	// blocked task holds a thread. It isn't bounded, since a blocked task
+	// may wait for one that hasn't started yet.
+	static final ExecutorService executor = createExecutor();
+
+	private final Future<Object> future;
+
+	Task(final Interpreter parent, final Callable function) {
+		future = executor.submit(() -> {
+			return parent.runtime.scheduled(() ->
+				function.call(parent.child(), new ArrayList<>()));
+		});
+	}
+
+	// Waits for the task and returns the value its function returned.
+	// A runtime error in the task is rethrown, with the line it happened at.
+	Object join() {
+		try {
+			return future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new NativeError("Interrupted while joining a task");
+		} catch (ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw new NativeError(cause.toString());
+		}
+	}
+
+	private static ExecutorService createExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)virtual.invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "qed-task");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "<task>";
+	}
+}
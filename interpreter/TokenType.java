@@ -17,7 +17,7 @@ enum TokenType {
 	IDENTIFIER, STRING, NUMBER,
 
 	// Keywords
-	AND, BREAK, CLASS, CONTINUE, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT,
+	AND, ASYNC, AWAIT, BREAK, CLASS, CONTINUE, ELSE, FALSE, FUN, FOR, IF, NIL, OR, PRINT,
 	RETURN, SUPER, THIS, TRUE, VAR, WHILE,
 
 	EOF
@@ -0,0 +1,136 @@
+package com.interpreter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// The execution trace of --trace: the last events of a runtime, kept in a
+// ring buffer that's allocated up front, so recording an event allocates
+// nothing. Events are calls entering and leaving functions, loop iterations
+// and runtime errors, each stored as two longs: System.nanoTime() and
+//
+//   kind << 56 | thread id << 32 | value
+//
+// where the value is the line of a loop, or the index of a name in a table
+// for the functions and error messages. The table only grows the first time
+// a function is called.
+//
+// The threads of a runtime share the buffer. dump() writes a snapshot of it,
+// for tool/TraceDecoder, without stopping the threads: events recorded while
+// it copies may show up torn or out of order.
+//
+// File format (DataOutputStream): MAGIC, VERSION, the number of names and the
+// names (writeUTF), the number of events and the events, oldest first.
+class TraceRecorder {
+	static final int MAGIC = 0x51454454; // "QEDT"
+	static final int VERSION = 1;
+
+	static final int ENTER = 1;
+	static final int EXIT = 2;
+	static final int LOOP = 3;
+	static final int ERROR = 4;
+
+	private final long[] times;
+	private final long[] events;
+	private final int mask;
+	private final AtomicLong next = new AtomicLong();
+
+	private final Map<Object, Integer> ids = new ConcurrentHashMap<>();
+	// the line of each loop, found on its first run
+	private final Map<Stmt, Integer> lines = new ConcurrentHashMap<>();
+	private final List<String> names = new ArrayList<>();
+	private final String path;
+
+	// A recorder of the last [size] events, a power of two, that dumps to [path]
+	TraceRecorder(int size, String path) {
+		if (Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("The trace size must be a power of two");
+		}
+		this.times = new long[size];
+		this.events = new long[size];
+		this.mask = size - 1;
+		this.path = path;
+	}
+
+	void enter(Stmt.Function function) {
+		record(ENTER, id(function));
+	}
+
+	void exit(Stmt.Function function) {
+		record(EXIT, id(function));
+	}
+
+	// The line to record the iterations of [loop] at
+	int line(Stmt loop) {
+		Integer line = lines.get(loop);
+		if (line != null) return line;
+
+		return lines.computeIfAbsent(loop, Lines::of);
+	}
+
+	void iteration(int line) {
+		record(LOOP, line);
+	}
+
+	void error(RuntimeError error) {
+		// errors are rare enough that each gets a new name
+		record(ERROR, name(error.getMessage() + " [line " + error.token.line + "]"));
+	}
+
+	private void record(int kind, int value) {
+		int slot = (int)next.getAndIncrement() & mask;
+		long thread = Thread.currentThread().getId() & 0xFFFFFF;
+		times[slot] = System.nanoTime();
+		events[slot] = (long)kind << 56 | thread << 32 | (value & 0xFFFFFFFFL);
+	}
+
+	private int id(Stmt.Function function) {
+		Integer id = ids.get(function);
+		if (id != null) return id;
+
+		return ids.computeIfAbsent(function, key -> name(ShadowStack.name(key)));
+	}
+
+	private int name(String name) {
+		synchronized (names) {
+			names.add(name);
+			return names.size() - 1;
+		}
+	}
+
+	// Writes the events in the buffer to the path of the recorder,
+	// and returns how many there were
+	synchronized int dump() throws IOException {
+		long end = next.get();
+		long start = Math.max(0, end - times.length);
+
+		List<String> table;
+		synchronized (names) {
+			table = new ArrayList<>(names);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(table.size());
+			for (String name : table) {
+				out.writeUTF(name);
+			}
+
+			out.writeInt((int)(end - start));
+			for (long i = start; i < end; ++i) {
+				int slot = (int)i & mask;
+				out.writeLong(times[slot]);
+				out.writeLong(events[slot]);
+			}
+		}
+		return (int)(end - start);
+	}
+}
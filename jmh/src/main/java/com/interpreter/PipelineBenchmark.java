@@ -0,0 +1,95 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Each stage of the pipeline on each program of the corpus (in
+// src/main/resources/corpus), measured on its own: every benchmark starts
+// from the output of the previous stage, prepared once in setup.
+//
+// Run with -prof gc for the allocation rate of each stage.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+	@Param({"fib", "loops", "strings", "sort", "oop", "closures"})
+	public String program;
+
+	private String source;
+	private List<Token> tokens;
+	private List<Stmt> statements;
+	private QedRuntime runtime;
+
+	@Setup
+	public void setup() throws IOException {
+		source = read("/corpus/" + program + ".qed");
+
+		// what the programs print is thrown away
+		PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+		runtime = new QedRuntime(discard, System.err);
+
+		tokens = new Scanner(source, runtime).scanTokens();
+		statements = new Parser(tokens, runtime).parse();
+		new Resolver(runtime.interpreter).resolve(statements);
+		if (runtime.hadError) {
+			throw new IllegalStateException(program + " has errors");
+		}
+	}
+
+	@Benchmark
+	public List<Token> lex() {
+		return new Scanner(source, runtime).scanTokens();
+	}
+
+	@Benchmark
+	public List<Stmt> parse() {
+		return new Parser(tokens, runtime).parse();
+	}
+
+	@Benchmark
+	public Map<Expr, Integer> resolve() {
+		Map<Expr, Integer> locals = new HashMap<>();
+		new Resolver(locals, runtime).resolve(statements);
+		return locals;
+	}
+
+	@Benchmark
+	public Environment execute() {
+		// every run starts from fresh globals, as a new script would
+		runtime.interpreter.reset();
+		runtime.interpreter.interpret(statements);
+		if (runtime.hadRuntimeError) {
+			throw new IllegalStateException(program + " failed");
+		}
+		return runtime.interpreter.globals;
+	}
+
+	private static String read(String resource) throws IOException {
+		try (InputStream input = PipelineBenchmark.class.getResourceAsStream(resource)) {
+			if (input == null) throw new IOException("No resource " + resource);
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
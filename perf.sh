@@ -0,0 +1,8 @@
+#!/bin/bash
+
+echo "javac interpreter and benchmarks"
+javac -d bin/ interpreter/*.java bench/*.java
+
+echo "java PerfRunner"
+# a fixed heap, so runs don't differ in how much of it they have to grow
+java -Xms1g -Xmx1g -cp bin/ com.interpreter.PerfRunner "$@"
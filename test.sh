@@ -0,0 +1,14 @@
+#!/bin/bash
+set -e
+
+echo "javac interpreter and tests"
+javac -d bin/ interpreter/*.java test/*.java
+
+echo "java QedServerTest"
+java -cp bin/ com.interpreter.QedServerTest
+
+echo "java CompactAstTest"
+java -cp bin/ com.interpreter.CompactAstTest
+
+echo "java LazyBodyTest"
+java -cp bin/ com.interpreter.LazyBodyTest
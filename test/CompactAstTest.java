@@ -0,0 +1,48 @@
+package com.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+// Checks that scripts print the same with --compact as without it, and
+// that a CompactAst decodes to the tree it was encoded from. Run it with
+// test.sh.
+public class CompactAstTest {
+	private static final String NILS = String.join("\n",
+		"var a = nil;",
+		"var b = nil;",
+		"fun pick(x) {",
+		"  if (x == nil) return nil;",
+		"  return [nil, x, nil];",
+		"}",
+		"print a == b, pick(nil), pick(1);",
+		"");
+
+	public static void main(String[] args) {
+		String expected = run(NILS, false);
+		check(expected.equals("true nil [nil, 1, nil] \n"), "unexpected output without --compact: " + expected);
+		check(run(NILS, true).equals(expected), "--compact printed something else");
+
+		QedRuntime runtime = new QedRuntime(System.out, System.err);
+		AstPrinter printer = new AstPrinter();
+		List<Stmt> tree = new Parser(new Scanner(NILS, runtime).scanTokens(), runtime).parse();
+		check(printer.println(CompactAst.encode(tree).decode()).equals(printer.println(tree)),
+			"the decoded tree differs from the encoded one");
+
+		System.out.println("CompactAstTest passed");
+	}
+
+	private static String run(String source, boolean compact) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		QedRuntime runtime = new QedRuntime(new PrintStream(out, true), new PrintStream(err, true));
+		runtime.compact = compact;
+		runtime.run(source);
+		check(err.size() == 0, "errors: " + err);
+		return out.toString();
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) throw new AssertionError(message);
+	}
+}
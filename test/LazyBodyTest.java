@@ -0,0 +1,76 @@
+package com.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+// Checks when --lazy reports the syntax errors of function bodies:
+// unbalanced brackets when the script is loaded, other errors when the
+// body is first called, and none for a body that isn't called. Run it
+// with test.sh.
+public class LazyBodyTest {
+	public static void main(String[] args) {
+		// the script doesn't run
+		Result unbalanced = run(String.join("\n",
+			"fun f() {",
+			"  print (1;",
+			"}",
+			"fun g() { return [1, 2); }",
+			"print \"ran\";",
+			""));
+		check(unbalanced.hadError, "unbalanced brackets weren't reported at load");
+		check(unbalanced.out.isEmpty(), "the script ran: " + unbalanced.out);
+		check(unbalanced.err.contains("[line 2] Error at '(':"), "missing error: " + unbalanced.err);
+		check(unbalanced.err.contains("[line 4] Error at ')':"), "missing error: " + unbalanced.err);
+
+		// reported when f is called, after what ran before
+		Result called = run(String.join("\n",
+			"fun f() {",
+			"  print 1 +;",
+			"}",
+			"print \"before\";",
+			"f();",
+			"print \"after\";",
+			""));
+		check(called.out.equals("before \n"), "unexpected output: " + called.out);
+		check(called.hadError && called.hadRuntimeError, "the call didn't fail");
+		check(called.err.contains("[line 2] Error at ';':"), "missing error: " + called.err);
+
+		// never reported
+		Result uncalled = run(String.join("\n",
+			"fun f() {",
+			"  print 1 +;",
+			"}",
+			"print \"ran\";",
+			""));
+		check(uncalled.out.equals("ran \n"), "unexpected output: " + uncalled.out);
+		check(!uncalled.hadError && uncalled.err.isEmpty(), "errors: " + uncalled.err);
+
+		System.out.println("LazyBodyTest passed");
+	}
+
+	private static class Result {
+		String out;
+		String err;
+		boolean hadError;
+		boolean hadRuntimeError;
+	}
+
+	private static Result run(String source) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+		QedRuntime runtime = new QedRuntime(new PrintStream(out, true), new PrintStream(err, true));
+		runtime.lazy = true;
+		runtime.run(source);
+
+		Result result = new Result();
+		result.out = out.toString();
+		result.err = err.toString();
+		result.hadError = runtime.hadError;
+		result.hadRuntimeError = runtime.hadRuntimeError;
+		return result;
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) throw new AssertionError(message);
+	}
+}
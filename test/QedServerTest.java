@@ -0,0 +1,103 @@
+package com.interpreter;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Checks that the server only replaces a stale socket at its socket path,
+// and refuses to start over any other file or over the socket of a server
+// that is running, and that frames over MAX_FRAME are rejected. Run it
+// with test.sh.
+public class QedServerTest {
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory("qed-server-test");
+		try {
+			regularFileSurvives(directory.resolve("script.qed"));
+			staleSocketIsRemoved(directory.resolve("qed.sock"));
+			liveSocketIsKept(directory.resolve("live.sock"));
+			oversizedFrameIsRejected(directory.resolve("frame.sock"));
+		} finally {
+			for (Path path : Files.newDirectoryStream(directory)) {
+				Files.delete(path);
+			}
+			Files.delete(directory);
+		}
+		System.out.println("QedServerTest passed");
+	}
+
+	private static void regularFileSurvives(Path path) throws IOException {
+		byte[] content = "print 1;\n".getBytes(StandardCharsets.UTF_8);
+		Files.write(path, content);
+
+		try {
+			new QedServer().serve(path.toString());
+			throw new AssertionError("the server started over a regular file");
+		} catch (FileAlreadyExistsException expected) {
+			// refused to start
+		}
+
+		check(Files.exists(path), "the regular file was deleted");
+		check(new String(Files.readAllBytes(path), StandardCharsets.UTF_8).equals("print 1;\n"),
+			"the regular file was changed");
+	}
+
+	private static void staleSocketIsRemoved(Path path) throws IOException {
+		// closing the channel leaves the socket file behind,
+		// like a server that was killed
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(path));
+		}
+		check(Files.exists(path), "the socket file wasn't left behind");
+
+		QedServer.removeStaleSocket(path);
+		check(!Files.exists(path), "the stale socket wasn't removed");
+	}
+
+	private static void liveSocketIsKept(Path path) throws IOException {
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(path));
+
+			try {
+				new QedServer().serve(path.toString());
+				throw new AssertionError("the server took over the socket of a running one");
+			} catch (FileAlreadyExistsException expected) {
+				// refused to start
+			}
+
+			check(Files.exists(path), "the socket of the running server was deleted");
+			try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(path))) {
+				check(client.isConnected(), "the running server can't be reached");
+			}
+		}
+	}
+
+	private static void oversizedFrameIsRejected(Path path) throws IOException {
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(path));
+			try (SocketChannel client = SocketChannel.open(UnixDomainSocketAddress.of(path));
+					SocketChannel accepted = server.accept()) {
+				ByteBuffer header = ByteBuffer.allocate(5).put((byte)0).putInt(QedServer.MAX_FRAME + 1);
+				header.flip();
+				client.write(header);
+
+				try {
+					QedServer.readFrame(accepted);
+					throw new AssertionError("an oversized frame was read");
+				} catch (IOException expected) {
+					// rejected before allocating its body
+				}
+			}
+		}
+	}
+
+	private static void check(boolean condition, String message) {
+		if (!condition) throw new AssertionError(message);
+	}
+}
@@ -33,13 +33,15 @@ public class GenerateAst {
 			"Literal  : Object value",
 			"Unary    : Token operator, Expr right",
 			"Ternary  : Expr condition, Expr onTrue, Expr onFalse",
+			"Await    : Token keyword, Expr value",
 			"Variable : Token name"
 		));
 
 		defineAst(outputDir, "Stmt", Arrays.asList(
 			"Block      : List<Stmt> statements",
 			"Expression : Expr expression",
-			"Function   : Token name, List<Token> parameters, List<Stmt> body",
+			// lazy is null unless the body was skipped by a lazy parse
+			"Function   : Token name, List<Token> parameters, List<Stmt> body, LazyBody lazy, boolean isAsync",
 			"Class      : Token name, Expr.Variable superclass, List<Stmt.Function> methods",
 			"If         : Expr condition, Stmt thenBranch, Stmt elseBranch",
 			"While      : Expr condition, Stmt body",
@@ -0,0 +1,145 @@
+package com.interpreter.tool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+// Prints a trace written by --trace (see TraceRecorder for the format), one
+// event per line, with the time since the first event, the thread, and
+// calls indented by their depth in the trace:
+//
+//   java -cp bin com.interpreter.tool.TraceDecoder qed.trace
+//
+// Runs of iterations of the same loop on a thread are printed as one line.
+public class TraceDecoder {
+	private static final int MAGIC = 0x51454454;
+	private static final int VERSION = 1;
+
+	private static final int ENTER = 1;
+	private static final int EXIT = 2;
+	private static final int LOOP = 3;
+	private static final int ERROR = 4;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: trace_decoder <trace file>");
+			System.exit(1);
+		}
+
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(args[0])))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				System.err.println(args[0] + " isn't a QED trace");
+				System.exit(1);
+			}
+
+			String[] names = new String[in.readInt()];
+			for (int i = 0; i < names.length; ++i) {
+				names[i] = in.readUTF();
+			}
+
+			decode(in, names, in.readInt());
+		}
+	}
+
+	private static void decode(DataInputStream in, String[] names, int count) throws IOException {
+		long[] times = new long[count];
+		long[] events = new long[count];
+		for (int i = 0; i < count; ++i) {
+			times[i] = in.readLong();
+			events[i] = in.readLong();
+		}
+
+		System.out.printf("%12s %7s  %s%n", "time (us)", "thread", "event");
+
+		Map<Integer, Integer> depths = startDepths(events);
+		long first = count > 0 ? times[0] : 0;
+		// the run of loop iterations being collapsed
+		long loopTime = 0;
+		int loopThread = -1;
+		int loopLine = 0;
+		int loops = 0;
+
+		for (int i = 0; i < count; ++i) {
+			long time = times[i];
+			long event = events[i];
+
+			int kind = (int)(event >>> 56);
+			int thread = (int)(event >>> 32) & 0xFFFFFF;
+			int value = (int)event;
+
+			if (kind == LOOP && loops > 0 && thread == loopThread && value == loopLine) {
+				++loops;
+				continue;
+			}
+			if (loops > 0) {
+				print(loopTime - first, loopThread, depths, "loop at line " + loopLine
+					+ (loops > 1 ? " x" + loops : ""));
+				loops = 0;
+			}
+
+			switch (kind) {
+				case ENTER:
+					print(time - first, thread, depths, "enter " + name(names, value));
+					depths.merge(thread, 1, Integer::sum);
+					break;
+				case EXIT:
+					depths.merge(thread, -1, Integer::sum);
+					print(time - first, thread, depths, "exit  " + name(names, value));
+					break;
+				case LOOP:
+					loopTime = time;
+					loopThread = thread;
+					loopLine = value;
+					loops = 1;
+					break;
+				case ERROR:
+					print(time - first, thread, depths, "error " + name(names, value));
+					break;
+				default:
+					print(time - first, thread, depths, "unknown event " + Long.toHexString(event));
+			}
+		}
+
+		if (loops > 0) {
+			print(loopTime - first, loopThread, depths, "loop at line " + loopLine
+				+ (loops > 1 ? " x" + loops : ""));
+		}
+	}
+
+	// The trace usually starts in the middle of calls, which return without
+	// having entered in the trace. A thread starts as deep as its calls go
+	// below where it started.
+	private static Map<Integer, Integer> startDepths(long[] events) {
+		Map<Integer, Integer> depths = new HashMap<>();
+		Map<Integer, Integer> lowest = new HashMap<>();
+		for (long event : events) {
+			int kind = (int)(event >>> 56);
+			int thread = (int)(event >>> 32) & 0xFFFFFF;
+			if (kind == ENTER) depths.merge(thread, 1, Integer::sum);
+			if (kind == EXIT) {
+				int depth = depths.merge(thread, -1, Integer::sum);
+				lowest.merge(thread, depth, Math::min);
+			}
+		}
+
+		Map<Integer, Integer> start = new HashMap<>();
+		for (Map.Entry<Integer, Integer> entry : lowest.entrySet()) {
+			start.put(entry.getKey(), -entry.getValue());
+		}
+		return start;
+	}
+
+	private static void print(long nanos, int thread, Map<Integer, Integer> depths, String event) {
+		int depth = Math.max(0, depths.getOrDefault(thread, 0));
+		System.out.printf("%12.3f %7d  %s%s%n", nanos / 1e3, thread, "  ".repeat(depth), event);
+	}
+
+	// Names registered after the trace was copied are missing from its table
+	private static String name(String[] names, int id) {
+		return id >= 0 && id < names.length ? names[id] : "?";
+	}
+}